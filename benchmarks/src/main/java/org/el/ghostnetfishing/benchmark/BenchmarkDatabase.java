@@ -0,0 +1,63 @@
+package org.el.ghostnetfishing.benchmark;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.el.ghostnetfishing.model.FishnetState;
+import org.el.ghostnetfishing.model.PersonType;
+
+/**
+ * In-memory H2 database standing in for the MySQL database of the application.
+ * <p/>
+ * The schema is created from the entities, the reference data are the
+ * fishnet states and person types the application expects.
+ */
+public final class BenchmarkDatabase {
+
+	private static final String UNIT_NAME = "ghostNetFishing-benchmark";
+
+	/**
+	 * Descriptions and recovery flags of the fishnet states, with the ids 1 to 4.
+	 */
+	private static final Object[][] STATES = {
+			{ "gemeldet", true },
+			{ "Bergung bevorstehend", true },
+			{ "geborgen", false },
+			{ "verschollen", false } };
+
+	/**
+	 * Descriptions of the person types, with the ids 1 to 3.
+	 */
+	private static final String[] PERSON_TYPES = { "anonym", "meldend", "bergend" };
+
+	/**
+	 * Creates the schema and stores the reference data.
+	 * @return factory of the benchmark persistence unit, to be closed by the caller.
+	 */
+	public static EntityManagerFactory open() {
+
+		EntityManagerFactory factory = Persistence.createEntityManagerFactory(UNIT_NAME);
+		EntityManager manager = factory.createEntityManager();
+		try {
+			manager.getTransaction().begin();
+			for (Object[] state : STATES) {
+				FishnetState fishnetState = new FishnetState();
+				fishnetState.setDescription((String) state[0]);
+				fishnetState.setRelevantForRecoveryFlag((Boolean) state[1]);
+				manager.persist(fishnetState);
+			}
+			for (String description : PERSON_TYPES) {
+				manager.persist(new PersonType(description, false));
+			}
+			manager.getTransaction().commit();
+		} finally {
+			manager.close();
+		}
+		return factory;
+	}
+
+	private BenchmarkDatabase() {
+		// Can never be called
+	}
+}
@@ -0,0 +1,105 @@
+package org.el.ghostnetfishing.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.el.ghostnetfishing.model.FishnetState;
+import org.el.ghostnetfishing.view.EntityConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion of select values to entities and back, done for every option of a select menu.
+ * <p/>
+ * Compares the identity cache of the shared converters with loading the entity on every conversion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityConverterBenchmark {
+
+	private EntityManagerFactory factory;
+
+	private EntityManager manager;
+
+	private StateConverter converter;
+
+	private FishnetState state;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.factory = BenchmarkDatabase.open();
+		this.manager = this.factory.createEntityManager();
+		this.converter = new StateConverter(this.manager);
+		this.state = this.manager.find(FishnetState.class, 2);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.manager.close();
+		this.factory.close();
+	}
+
+	@Benchmark
+	public Object getAsObjectCached() {
+		return this.converter.getAsObject(null, null, "2");
+	}
+
+	@Benchmark
+	public Object getAsObjectLoaded() {
+		this.converter.clear();
+		this.manager.clear();
+		return this.converter.getAsObject(null, null, "2");
+	}
+
+	@Benchmark
+	public String getAsString() {
+		return this.converter.getAsString(null, null, this.state);
+	}
+
+	/**
+	 * Converter of fishnet states loading single entities from the benchmark database.
+	 */
+	private static final class StateConverter extends EntityConverter<FishnetState> {
+
+		private final EntityManager manager;
+
+		StateConverter(EntityManager manager) {
+			this.manager = manager;
+		}
+
+		void clear() {
+			invalidate();
+		}
+
+		@Override
+		protected Class<FishnetState> getType() {
+			return FishnetState.class;
+		}
+
+		@Override
+		protected Integer getId(FishnetState entity) {
+			return entity.getId();
+		}
+
+		@Override
+		protected FishnetState load(Integer id) {
+			return this.manager.find(FishnetState.class, id);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package org.el.ghostnetfishing.benchmark;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.el.ghostnetfishing.model.Fishnet;
+import org.el.ghostnetfishing.model.FishnetState;
+import org.el.ghostnetfishing.model.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * equals() and hashCode() of the entities, as used by the HashSet collections
+ * of fishnets on {@link Person} and {@link FishnetState}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityHashingBenchmark {
+
+	/**
+	 * Number of fishnets in the collection.
+	 */
+	@Param({ "100", "10000" })
+	private int size;
+
+	private Fishnet[] fishnets;
+
+	private Person[] persons;
+
+	private Set<Fishnet> fishnetsOfState;
+
+	@Setup
+	public void setUp() {
+		this.fishnets = new Fishnet[this.size];
+		this.persons = new Person[this.size];
+		for (int i = 0; i < this.size; i++) {
+			this.fishnets[i] = new Fishnet(i + 1, 10, 54.1, 7.9);
+			this.persons[i] = new Person();
+			this.persons[i].setId(i + 1);
+		}
+		FishnetState state = new FishnetState(1);
+		for (Fishnet fishnet : this.fishnets) {
+			state.getFishnets().add(fishnet);
+		}
+		this.fishnetsOfState = state.getFishnets();
+	}
+
+	/**
+	 * Fills the collection of a person, as Hibernate does when it loads it.
+	 */
+	@Benchmark
+	public Set<Fishnet> addFishnets() {
+		Person person = new Person();
+		for (Fishnet fishnet : this.fishnets) {
+			person.getFishnetsForSalvagingPersonId().add(fishnet);
+		}
+		return person.getFishnetsForSalvagingPersonId();
+	}
+
+	/**
+	 * Looks up every fishnet in the collection of a state, as remove() on delete does.
+	 */
+	@Benchmark
+	public int containsFishnets() {
+		int found = 0;
+		for (Fishnet fishnet : this.fishnets) {
+			if (this.fishnetsOfState.contains(fishnet)) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Hashes persons with boxed ids.
+	 */
+	@Benchmark
+	public Set<Person> addPersons() {
+		Set<Person> set = new HashSet<Person>();
+		for (Person person : this.persons) {
+			set.add(person);
+		}
+		return set;
+	}
+}
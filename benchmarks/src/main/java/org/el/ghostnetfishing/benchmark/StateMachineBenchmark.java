@@ -0,0 +1,87 @@
+package org.el.ghostnetfishing.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.el.ghostnetfishing.model.FishnetState;
+import org.el.ghostnetfishing.model.PersonType;
+import org.el.ghostnetfishing.view.FishnetStateBean;
+import org.el.ghostnetfishing.view.FishnetStateCatalog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Destination states of the fishnet state machine, computed once per row of the overview.
+ * <p/>
+ * Measures the lookup in the transition matrix of the catalog, which the
+ * overview does per row, and the rule the matrix is computed with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateMachineBenchmark {
+
+	private EntityManagerFactory factory;
+
+	private EntityManager manager;
+
+	private FishnetStateCatalog catalog;
+
+	private FishnetState reported;
+
+	private PersonType recoverer;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.factory = BenchmarkDatabase.open();
+		this.manager = this.factory.createEntityManager();
+		this.reported = this.manager.find(FishnetState.class, 1);
+		this.recoverer = this.manager.find(PersonType.class, 3);
+
+		// the first lookup loads the snapshot with the transition matrix
+		this.catalog = new FishnetStateCatalog(this.manager);
+		this.catalog.getPossibleDestinationStates(this.reported, this.recoverer);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.manager.close();
+		this.factory.close();
+	}
+
+	@Benchmark
+	public List<FishnetState> destinationStates() {
+		return this.catalog.getPossibleDestinationStates(this.reported, this.recoverer);
+	}
+
+	/**
+	 * Checks every combination of source state, destination state and person type.
+	 */
+	@Benchmark
+	public void transitionRule(Blackhole blackhole) {
+		for (int current = 1; current <= 4; current++) {
+			for (int destination = 1; destination <= 4; destination++) {
+				for (int personType = 1; personType <= 3; personType++) {
+					blackhole.consume(FishnetStateBean.isPossibleTransition(current, destination, personType));
+				}
+			}
+		}
+	}
+}
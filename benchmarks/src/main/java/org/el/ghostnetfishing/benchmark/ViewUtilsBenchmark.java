@@ -0,0 +1,80 @@
+package org.el.ghostnetfishing.benchmark;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.el.ghostnetfishing.model.Fishnet;
+import org.el.ghostnetfishing.model.FishnetState;
+import org.el.ghostnetfishing.view.ViewUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Helpers called by the views for every displayed row or select item.
+ * <p/>
+ * display() takes the declared toString() of a fishnet state, but has to
+ * search the id getter by reflection for a fishnet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewUtilsBenchmark {
+
+	/**
+	 * Number of elements of the sorted collection.
+	 */
+	@Param({ "4", "100", "10000" })
+	private int size;
+
+	private Set<FishnetState> states;
+
+	private FishnetState state;
+
+	private Fishnet fishnet;
+
+	@Setup
+	public void setUp() {
+		this.states = new HashSet<FishnetState>();
+		for (int id = this.size; id > 0; id--) {
+			FishnetState fishnetState = new FishnetState(id);
+			fishnetState.setDescription("Status " + id);
+			this.states.add(fishnetState);
+		}
+		this.state = this.states.iterator().next();
+		this.fishnet = new Fishnet(42, 10, 54.1, 7.9);
+	}
+
+	@Benchmark
+	public String displayWithToString() {
+		return ViewUtils.display(this.state);
+	}
+
+	@Benchmark
+	public String displayById() {
+		return ViewUtils.display(this.fishnet);
+	}
+
+	@Benchmark
+	public List<FishnetState> asSortedList() {
+		return ViewUtils.asSortedList(this.states);
+	}
+
+	@Benchmark
+	public List<FishnetState> asList() {
+		return ViewUtils.asList(this.states);
+	}
+}
@@ -7,25 +7,49 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedSubgraph;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.persistence.Transient;
+import javax.persistence.Version;
 import javax.validation.constraints.DecimalMax;
 import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Min;
 
 /**
  * Fishnet generated by hbm2java
+ * <p/>
+ * The named entity graph is a fetch profile for queries, which loads the
+ * lazy associations in the same query instead of one query per association.
  */
 @Entity
-@Table(name = "fishnet", catalog = "ghost_net_fishing")
+@NamedEntityGraph(name = Fishnet.GRAPH_DETAILS, attributeNodes = {
+		@NamedAttributeNode("fishnetState"),
+		@NamedAttributeNode(value = "personBySalvagingPersonId", subgraph = "person"),
+		@NamedAttributeNode(value = "personByRecoveryMessagingPersonId", subgraph = "person") },
+		subgraphs = @NamedSubgraph(name = "person", attributeNodes = @NamedAttributeNode("personType")))
+@Table(name = "fishnet", catalog = "ghost_net_fishing", indexes = {
+		@Index(name = "idx_fishnet_grid_cell", columnList = "grid_cell"),
+		@Index(name = "idx_fishnet_state_id", columnList = "fishnet_state_id, id"),
+		@Index(name = "idx_fishnet_salvaging_person_id", columnList = "salvaging_person_id, id"),
+		@Index(name = "idx_fishnet_recovery_person_id", columnList = "recovery_messaging_person_id, id") })
 public class Fishnet implements java.io.Serializable {
 
 	/**
 	 * Uniquely identify the version of a serializable.
 	 */
 	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Entity graph loading the state and both persons with their type, used by the detail views.
+	 */
+	public static final String GRAPH_DETAILS = "Fishnet.details";
 	
 	/**
 	 * Unique identifier of Fishnet.
@@ -70,6 +94,17 @@ public class Fishnet implements java.io.Serializable {
 	@DecimalMin(value = "-180.00")
 	private double longitude;
 	
+	/**
+	 * {@link org.el.ghostnetfishing.model.GeoGrid Cell} of the spatial grid containing the fishnet.
+	 * Derived from latitude and longitude.
+	 */
+	private int gridCell;
+	
+	/**
+	 * Version for optimistic locking, incremented with every write.
+	 */
+	private int version;
+	
 	/**
 	 * {@link org.el.ghostnetfishing.model.FishnetState new state} for fishnet. 
 	 * Used when the status changed by person.
@@ -167,6 +202,34 @@ public class Fishnet implements java.io.Serializable {
 	public void setLongitude(double longitude) {
 		this.longitude = longitude;
 	}
+
+	@Column(name = "grid_cell", nullable = false)
+	public int getGridCell() {
+		return this.gridCell;
+	}
+
+	public void setGridCell(int gridCell) {
+		this.gridCell = gridCell;
+	}
+
+	@Version
+	@Column(name = "version", nullable = false)
+	public int getVersion() {
+		return this.version;
+	}
+
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
+	/**
+	 * Keeps the grid cell in line with the coordinates before writing.
+	 */
+	@PrePersist
+	@PreUpdate
+	protected void updateGridCell() {
+		this.gridCell = GeoGrid.cellOf(this.latitude, this.longitude);
+	}
 	
 	/**
 	 * Field is not persistent.
@@ -0,0 +1,55 @@
+package org.el.ghostnetfishing.model;
+
+/**
+ * Aggregate of the fishnets in one cell of the worldmap, used for zoomed out views.
+ */
+public class FishnetCluster implements java.io.Serializable {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Latitude of the centroid of all fishnets in the cell.
+	 */
+	private final double latitude;
+
+	/**
+	 * Longitude of the centroid of all fishnets in the cell.
+	 */
+	private final double longitude;
+
+	/**
+	 * Number of fishnets in the cell.
+	 */
+	private final int count;
+
+	/**
+	 * Sum of the size of all fishnets in the cell.
+	 */
+	private final double totalSize;
+
+	public FishnetCluster(double latitude, double longitude, int count, double totalSize) {
+		this.latitude = latitude;
+		this.longitude = longitude;
+		this.count = count;
+		this.totalSize = totalSize;
+	}
+
+	public double getLatitude() {
+		return this.latitude;
+	}
+
+	public double getLongitude() {
+		return this.longitude;
+	}
+
+	public int getCount() {
+		return this.count;
+	}
+
+	public double getTotalSize() {
+		return this.totalSize;
+	}
+}
@@ -0,0 +1,142 @@
+package org.el.ghostnetfishing.model;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+
+/**
+ * Report of a fishnet, waiting in the ingestion queue until it is stored as {@link Fishnet}.
+ * <p/>
+ * The queue is a table, so reports survive a restart. The reporting person
+ * is kept as plain id, enqueueing a report doesn't need to load it.
+ * Reports, that repeatedly failed to be stored, stay in the table as dead
+ * letters with the time they failed.
+ */
+@Entity
+@Table(name = "fishnet_report", catalog = "ghost_net_fishing")
+public class FishnetReport implements java.io.Serializable {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Unique identifier of the report, the order of the queue.
+	 */
+	private Long id;
+
+	/**
+	 * Id of the {@link org.el.ghostnetfishing.model.Person Person} who submited the fishnet, null if unknown.
+	 */
+	private Integer salvagingPersonId;
+
+	@Min(1)
+	private double size;
+
+	@DecimalMax(value = "90.00")
+	@DecimalMin(value = "-90.00")
+	private double latitude;
+
+	@DecimalMax(value = "180.00")
+	@DecimalMin(value = "-180.00")
+	private double longitude;
+
+	/**
+	 * Time the report was received.
+	 */
+	private Date received;
+
+	/**
+	 * Time the report was given up, null while it is waiting.
+	 */
+	private Date failed;
+
+	public FishnetReport() {
+	}
+
+	public FishnetReport(Integer salvagingPersonId, double size, double latitude, double longitude) {
+		this.salvagingPersonId = salvagingPersonId;
+		this.size = size;
+		this.latitude = latitude;
+		this.longitude = longitude;
+		this.received = new Date();
+	}
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id", unique = true, nullable = false)
+	public Long getId() {
+		return this.id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	@Column(name = "salvaging_person_id")
+	public Integer getSalvagingPersonId() {
+		return this.salvagingPersonId;
+	}
+
+	public void setSalvagingPersonId(Integer salvagingPersonId) {
+		this.salvagingPersonId = salvagingPersonId;
+	}
+
+	@Column(name = "size", nullable = false, precision = 22, scale = 0)
+	public double getSize() {
+		return this.size;
+	}
+
+	public void setSize(double size) {
+		this.size = size;
+	}
+
+	@Column(name = "latitude", nullable = false, precision = 22, scale = 0)
+	public double getLatitude() {
+		return this.latitude;
+	}
+
+	public void setLatitude(double latitude) {
+		this.latitude = latitude;
+	}
+
+	@Column(name = "longitude", nullable = false, precision = 22, scale = 0)
+	public double getLongitude() {
+		return this.longitude;
+	}
+
+	public void setLongitude(double longitude) {
+		this.longitude = longitude;
+	}
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "received", nullable = false)
+	public Date getReceived() {
+		return this.received;
+	}
+
+	public void setReceived(Date received) {
+		this.received = received;
+	}
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "failed")
+	public Date getFailed() {
+		return this.failed;
+	}
+
+	public void setFailed(Date failed) {
+		this.failed = failed;
+	}
+}
@@ -0,0 +1,97 @@
+package org.el.ghostnetfishing.model;
+
+/**
+ * Read-only row of a fishnet list, filled by a constructor expression.
+ * <p/>
+ * Unlike a Fishnet entity, a row is not managed by the persistence context,
+ * so the list views don't add snapshots for dirty checking.
+ */
+public class FishnetRow implements java.io.Serializable {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final int id;
+
+	private final double size;
+
+	private final double latitude;
+
+	private final double longitude;
+
+	/**
+	 * Id of the {@link org.el.ghostnetfishing.model.FishnetState state}, null if the fishnet has none.
+	 */
+	private final Integer stateId;
+
+	private final String stateDescription;
+
+	/**
+	 * Id of the {@link org.el.ghostnetfishing.model.Person Person} who recovers the fishnet, null if none.
+	 */
+	private final Integer recovererId;
+
+	/**
+	 * Version of the fishnet when the row was read.
+	 */
+	private final int version;
+
+	/**
+	 * {@link org.el.ghostnetfishing.model.FishnetState state} selected in the overview, not yet saved.
+	 */
+	private FishnetState newFishnetState;
+
+	public FishnetRow(int id, double size, double latitude, double longitude, Integer stateId,
+			String stateDescription, Integer recovererId, int version) {
+		this.id = id;
+		this.size = size;
+		this.latitude = latitude;
+		this.longitude = longitude;
+		this.stateId = stateId;
+		this.stateDescription = stateDescription;
+		this.recovererId = recovererId;
+		this.version = version;
+	}
+
+	public int getId() {
+		return this.id;
+	}
+
+	public double getSize() {
+		return this.size;
+	}
+
+	public double getLatitude() {
+		return this.latitude;
+	}
+
+	public double getLongitude() {
+		return this.longitude;
+	}
+
+	public Integer getStateId() {
+		return this.stateId;
+	}
+
+	public String getStateDescription() {
+		return this.stateDescription;
+	}
+
+	public Integer getRecovererId() {
+		return this.recovererId;
+	}
+
+	public int getVersion() {
+		return this.version;
+	}
+
+	public FishnetState getNewFishnetState() {
+		return this.newFishnetState;
+	}
+
+	public void setNewFishnetState(FishnetState newFishnetState) {
+		this.newFishnetState = newFishnetState;
+	}
+}
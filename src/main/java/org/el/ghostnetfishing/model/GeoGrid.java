@@ -0,0 +1,155 @@
+package org.el.ghostnetfishing.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed tile grid over the worldmap, used as spatial index for fishnets.
+ * <p/>
+ * The map is divided into square cells of {@link #CELL_SIZE} degrees. Every
+ * cell has an integer key, which is stored on the fishnet, so that a bounding
+ * box or radius query only has to look at the cells it covers instead of
+ * scanning all fishnets. Keys are numbered row by row, so the cells of a box
+ * in one row form a single key range.
+ */
+public final class GeoGrid {
+
+	/**
+	 * Edge length of a cell in degrees.
+	 */
+	public static final double CELL_SIZE = 0.5;
+
+	/**
+	 * Number of cell rows from latitude -90 to 90.
+	 */
+	public static final int ROWS = (int) (180 / CELL_SIZE);
+
+	/**
+	 * Number of cell columns from longitude -180 to 180.
+	 */
+	public static final int COLUMNS = (int) (360 / CELL_SIZE);
+
+	/**
+	 * Maximum number of key ranges resolved for one query.
+	 * Boxes with more rows are restricted by one range from their first to their last row.
+	 */
+	public static final int MAX_RANGES_PER_QUERY = 64;
+
+	/**
+	 * Mean radius of the earth in kilometers.
+	 */
+	public static final double EARTH_RADIUS_KM = 6371.0088;
+
+	/**
+	 * Computes the cell key of a coordinate.
+	 * @param latitude between -90 and 90.
+	 * @param longitude between -180 and 180.
+	 * @return key of the cell containing the coordinate.
+	 */
+	public static int cellOf(double latitude, double longitude) {
+		return row(latitude) * COLUMNS + column(longitude);
+	}
+
+	/**
+	 * Resolves the cell key ranges covered by a bounding box, one per row of cells.
+	 * When west is greater than east, the box crosses the date line and every row
+	 * needs two ranges. Boxes needing more than {@link #MAX_RANGES_PER_QUERY} ranges
+	 * get a single range from the first cell of their first row to the last cell of
+	 * their last row.
+	 * @param south lower latitude.
+	 * @param west left longitude.
+	 * @param north upper latitude.
+	 * @param east right longitude.
+	 * @return list of arrays with the first and the last key of a range.
+	 */
+	public static List<int[]> cellRangesOf(double south, double west, double north, double east) {
+
+		int firstRow = row(Math.min(south, north));
+		int lastRow = row(Math.max(south, north));
+		int firstColumn = column(west);
+		int lastColumn = column(east);
+
+		// columns wrap around at the date line
+		boolean wrapping = lastColumn < firstColumn;
+		int rows = lastRow - firstRow + 1;
+		List<int[]> ranges = new ArrayList<int[]>();
+		if (rows * (wrapping ? 2 : 1) > MAX_RANGES_PER_QUERY) {
+			ranges.add(wrapping ? new int[] { firstRow * COLUMNS, lastRow * COLUMNS + COLUMNS - 1 }
+					: new int[] { firstRow * COLUMNS + firstColumn, lastRow * COLUMNS + lastColumn });
+			return ranges;
+		}
+		for (int row = firstRow; row <= lastRow; row++) {
+			if (wrapping) {
+				ranges.add(new int[] { row * COLUMNS + firstColumn, row * COLUMNS + COLUMNS - 1 });
+				ranges.add(new int[] { row * COLUMNS, row * COLUMNS + lastColumn });
+			} else {
+				ranges.add(new int[] { row * COLUMNS + firstColumn, row * COLUMNS + lastColumn });
+			}
+		}
+		return ranges;
+	}
+
+	/**
+	 * Computes the bounding box around a coordinate.
+	 * @param latitude of the center.
+	 * @param longitude of the center.
+	 * @param radiusKm radius in kilometers.
+	 * @return array with south, west, north and east.
+	 */
+	public static double[] boundingBox(double latitude, double longitude, double radiusKm) {
+
+		double deltaLatitude = Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
+		double south = Math.max(-90, latitude - deltaLatitude);
+		double north = Math.min(90, latitude + deltaLatitude);
+
+		// near the poles the box covers all longitudes
+		if (south <= -90 || north >= 90) {
+			return new double[] { south, -180, north, 180 };
+		}
+		// away from the poles the sine ratio stays below 1, the box is at most 180 degrees wide
+		double deltaLongitude = Math.toDegrees(Math.asin(Math.min(1,
+				Math.sin(radiusKm / EARTH_RADIUS_KM) / Math.cos(Math.toRadians(latitude)))));
+		return new double[] { south, normalizeLongitude(longitude - deltaLongitude),
+				north, normalizeLongitude(longitude + deltaLongitude) };
+	}
+
+	/**
+	 * Computes the great circle distance of two coordinates with the haversine formula.
+	 * @return distance in kilometers.
+	 */
+	public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+
+		double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+		double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+		double a = Math.sin(deltaLatitude / 2) * Math.sin(deltaLatitude / 2)
+				+ Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+				* Math.sin(deltaLongitude / 2) * Math.sin(deltaLongitude / 2);
+		return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+	private static int row(double latitude) {
+		return clamp((int) Math.floor((latitude + 90) / CELL_SIZE), ROWS);
+	}
+
+	private static int column(double longitude) {
+		return clamp((int) Math.floor((longitude + 180) / CELL_SIZE), COLUMNS);
+	}
+
+	private static int clamp(int value, int size) {
+		return Math.max(0, Math.min(size - 1, value));
+	}
+
+	private static double normalizeLongitude(double longitude) {
+		if (longitude < -180) {
+			return longitude + 360;
+		}
+		if (longitude > 180) {
+			return longitude - 360;
+		}
+		return longitude;
+	}
+
+	private GeoGrid() {
+		// Can never be called
+	}
+}
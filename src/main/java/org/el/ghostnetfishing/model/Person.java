@@ -12,6 +12,7 @@ import javax.persistence.GeneratedValue;
 
 import static javax.persistence.GenerationType.IDENTITY;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
@@ -21,7 +22,8 @@ import javax.persistence.Table;
  * Person generated by hbm2java
  */
 @Entity
-@Table(name = "person", catalog = "ghost_net_fishing")
+@Table(name = "person", catalog = "ghost_net_fishing", indexes = {
+		@Index(name = "idx_person_name_id", columnList = "name, id") })
 public class Person implements java.io.Serializable {
 
 	/**
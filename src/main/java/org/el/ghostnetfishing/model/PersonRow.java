@@ -0,0 +1,36 @@
+package org.el.ghostnetfishing.model;
+
+/**
+ * Read-only row of a person list, filled by a constructor expression.
+ */
+public class PersonRow implements java.io.Serializable {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final Integer id;
+
+	private final String name;
+
+	private final String telephoneNumber;
+
+	public PersonRow(Integer id, String name, String telephoneNumber) {
+		this.id = id;
+		this.name = name;
+		this.telephoneNumber = telephoneNumber;
+	}
+
+	public Integer getId() {
+		return this.id;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public String getTelephoneNumber() {
+		return this.telephoneNumber;
+	}
+}
@@ -4,6 +4,7 @@ package org.el.ghostnetfishing.model;
 import java.util.HashSet;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -14,10 +15,17 @@ import javax.persistence.Id;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
  * PersonType generated by hbm2java
+ * <p/>
+ * Reference data, kept in the second level cache region "personType".
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.TRANSACTIONAL, region = "personType")
 @Table(name = "person_type", catalog = "ghost_net_fishing")
 public class PersonType implements java.io.Serializable, Comparable<PersonType> {
 
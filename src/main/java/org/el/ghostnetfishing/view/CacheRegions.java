@@ -0,0 +1,62 @@
+package org.el.ghostnetfishing.view;
+
+import javax.persistence.TypedQuery;
+
+/**
+ * Names of the second level cache regions for reference data.
+ * <p/>
+ * The eviction policy of each region is configured in the persistence.xml
+ * with the qualified region name.
+ */
+
+public final class CacheRegions {
+
+	/**
+	 * Prefix of all regions, setted as hibernate.cache.region_prefix.
+	 */
+	public static final String PREFIX = "ghostNetFishing";
+
+	/**
+	 * Region of the FishnetState entities.
+	 */
+	public static final String FISHNET_STATE = "fishnetState";
+
+	/**
+	 * Region of the PersonType entities.
+	 */
+	public static final String PERSON_TYPE = "personType";
+
+	/**
+	 * Region of the queries which load reference data.
+	 */
+	public static final String REFERENCE_QUERIES = "referenceQueries";
+
+	/**
+	 * All regions maintained by the application.
+	 */
+	public static final String[] ALL = { FISHNET_STATE, PERSON_TYPE, REFERENCE_QUERIES };
+
+	/**
+	 * Returns the region name as used by the cache provider.
+	 * @param region name without prefix.
+	 * @return qualified region name.
+	 */
+	public static String qualified(String region) {
+		return PREFIX + "." + region;
+	}
+
+	/**
+	 * Marks a query on reference data to be served by the query cache.
+	 * @param query on FishnetState or PersonType.
+	 * @return the same query.
+	 */
+	public static <T> TypedQuery<T> cacheable(TypedQuery<T> query) {
+		query.setHint("org.hibernate.cacheable", Boolean.TRUE);
+		query.setHint("org.hibernate.cacheRegion", REFERENCE_QUERIES);
+		return query;
+	}
+
+	private CacheRegions() {
+		// Can never be called
+	}
+}
@@ -0,0 +1,107 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Named;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * CacheStatisticsBean reports hits and misses of the second level cache regions.
+ */
+
+@Named
+@ApplicationScoped
+public class CacheStatisticsBean {
+
+	/**
+	 * Loading entity manager factory with unit name ghostNetFishing-persistence-unit.
+	 */
+	@PersistenceUnit(unitName = "ghostNetFishing-persistence-unit")
+	private EntityManagerFactory entityManagerFactory;
+
+	/**
+	 * Collects the current statistics of all regions.
+	 * @return list with one entry per region, regions not yet used are left out.
+	 */
+	public List<RegionStatistics> getRegions() {
+
+		Statistics statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		List<RegionStatistics> regions = new ArrayList<RegionStatistics>();
+		for (String region : CacheRegions.ALL) {
+			SecondLevelCacheStatistics regionStatistics = statistics
+					.getSecondLevelCacheStatistics(CacheRegions.qualified(region));
+			if (regionStatistics != null) {
+				regions.add(new RegionStatistics(region, regionStatistics.getHitCount(),
+						regionStatistics.getMissCount(), regionStatistics.getPutCount(),
+						regionStatistics.getElementCountInMemory()));
+			}
+		}
+		return regions;
+	}
+
+	/**
+	 * Statistics of one cache region.
+	 */
+	public static class RegionStatistics implements Serializable {
+
+		/**
+		 * Uniquely identify the version of a serializable.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		private final String name;
+
+		private final long hitCount;
+
+		private final long missCount;
+
+		private final long putCount;
+
+		private final long elementCount;
+
+		public RegionStatistics(String name, long hitCount, long missCount, long putCount, long elementCount) {
+			this.name = name;
+			this.hitCount = hitCount;
+			this.missCount = missCount;
+			this.putCount = putCount;
+			this.elementCount = elementCount;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public long getHitCount() {
+			return this.hitCount;
+		}
+
+		public long getMissCount() {
+			return this.missCount;
+		}
+
+		public long getPutCount() {
+			return this.putCount;
+		}
+
+		public long getElementCount() {
+			return this.elementCount;
+		}
+
+		/**
+		 * Share of hits in all lookups.
+		 * @return ratio between 0 and 1.
+		 */
+		public double getHitRatio() {
+			long lookups = this.hitCount + this.missCount;
+			return lookups == 0 ? 0 : (double) this.hitCount / lookups;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package org.el.ghostnetfishing.view;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Table;
+
+/**
+ * CountCache keeps the row counts of the search pages.
+ * <p/>
+ * Counts are cached per entity type and normalized search key, so flipping
+ * through the pages of a search runs the COUNT query only once. All counts
+ * of a type are dropped, when entities of the type are written. Optionally,
+ * unfiltered searches on large tables are answered with the row estimate of
+ * the table statistics instead of counting.
+ */
+
+@ApplicationScoped
+public class CountCache {
+
+	/**
+	 * Maximum number of cached counts per entity type, the counts of a type are dropped when it is reached.
+	 */
+	private static final int MAX_ENTRIES_PER_TYPE = 1000;
+
+	/**
+	 * Tables with less estimated rows are counted exactly.
+	 */
+	private static final long ESTIMATE_THRESHOLD = 10000;
+
+	/**
+	 * When setted, unfiltered searches use the row estimate of the table statistics.
+	 * Configured by the env-entry countCache/estimatedCounts in web.xml.
+	 */
+	@Resource(name = "countCache/estimatedCounts")
+	private Boolean estimatedCounts = Boolean.FALSE;
+
+	/**
+	 * Loading entity manager with unit name ghostNetFishing-persistence-unit.
+	 */
+	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit")
+	private EntityManager entityManager;
+
+	/**
+	 * Cached counts per entity type and search key.
+	 */
+	private final ConcurrentMap<Class<?>, ConcurrentMap<String, Long>> counts = new ConcurrentHashMap<Class<?>, ConcurrentMap<String, Long>>();
+
+	/**
+	 * Returns the count of a search, running the query only if the count is not cached.
+	 * @param type of the counted entities.
+	 * @param searchKey normalized search predicates, see {@link #searchKey(Object...)}.
+	 * @param query runs the COUNT query.
+	 * @return number of rows.
+	 */
+	public long getCount(Class<?> type, String searchKey, CountQuery query) {
+
+		ConcurrentMap<String, Long> entries = this.counts.get(type);
+		if (entries == null) {
+			ConcurrentMap<String, Long> created = new ConcurrentHashMap<String, Long>();
+			entries = this.counts.putIfAbsent(type, created);
+			if (entries == null) {
+				entries = created;
+			}
+		}
+		Long count = entries.get(searchKey);
+		if (count != null) {
+			return count;
+		}
+
+		count = isEstimating(searchKey) ? estimate(type) : null;
+		if (count == null) {
+			count = query.count();
+		}
+
+		// entries dropped by a write during the query are unreachable, so the count is not kept then
+		if (entries.size() >= MAX_ENTRIES_PER_TYPE) {
+			entries.clear();
+		}
+		entries.put(searchKey, count);
+		return count;
+	}
+
+	/**
+	 * Checks if the count of a search may be an estimate.
+	 * @param searchKey normalized search predicates.
+	 * @return true, if estimated counts are enabled and the search is unfiltered.
+	 */
+	public boolean isEstimating(String searchKey) {
+		return this.estimatedCounts && searchKey.isEmpty();
+	}
+
+	/**
+	 * Drops the counts of a type, after entities of the type are written successfully.
+	 * @param event about the written entities.
+	 */
+	public void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangedEvent event) {
+		this.counts.remove(event.getEntityType());
+	}
+
+	/**
+	 * Builds a normalized search key from pairs of names and values.
+	 * Pairs with a null or empty value are left out, Strings are compared case insensitive.
+	 * @param namesAndValues alternating names and values.
+	 * @return search key, empty for an unfiltered search.
+	 */
+	public static String searchKey(Object... namesAndValues) {
+
+		StringBuilder key = new StringBuilder();
+		for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+			Object value = namesAndValues[i + 1];
+			if (value == null || "".equals(value)) {
+				continue;
+			}
+			if (key.length() > 0) {
+				key.append('&');
+			}
+			key.append(namesAndValues[i]).append('=');
+			key.append(value instanceof String ? ((String) value).toLowerCase() : value);
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Reads the row estimate of the table of an entity from the table statistics of MySQL.
+	 * @return estimate, or null if it is unknown or too small to be useful.
+	 */
+	private Long estimate(Class<?> type) {
+
+		Table table = type.getAnnotation(Table.class);
+		if (table == null) {
+			return null;
+		}
+		List<?> rows = this.entityManager.createNativeQuery(
+				"select TABLE_ROWS from information_schema.TABLES"
+				+ " where TABLE_SCHEMA = ? and TABLE_NAME = ?")
+				.setParameter(1, table.catalog())
+				.setParameter(2, table.name())
+				.getResultList();
+		if (rows.isEmpty() || rows.get(0) == null) {
+			return null;
+		}
+		long estimate = ((Number) rows.get(0)).longValue();
+		return estimate < ESTIMATE_THRESHOLD ? null : Long.valueOf(estimate);
+	}
+
+	/**
+	 * Runs the COUNT query of a search.
+	 */
+	public interface CountQuery {
+		long count();
+	}
+}
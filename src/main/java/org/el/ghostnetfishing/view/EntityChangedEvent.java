@@ -0,0 +1,39 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.Serializable;
+
+/**
+ * CDI event fired by the backing beans, when entities of a type are written.
+ * <p/>
+ * Observers use it to invalidate data they keep in memory, preferably after
+ * the transaction succeeded (<tt>TransactionPhase.AFTER_SUCCESS</tt>).
+ */
+public class EntityChangedEvent implements Serializable {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Class of the written entities.
+	 */
+	private final Class<?> entityType;
+
+	public EntityChangedEvent(Class<?> entityType) {
+		this.entityType = entityType;
+	}
+
+	public Class<?> getEntityType() {
+		return this.entityType;
+	}
+
+	/**
+	 * Checks if the event is about entities of the given type.
+	 * @param type of entity.
+	 * @return true, if entities of the type are changed.
+	 */
+	public boolean concerns(Class<?> type) {
+		return this.entityType.equals(type);
+	}
+}
@@ -0,0 +1,120 @@
+package org.el.ghostnetfishing.view;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.faces.component.UIComponent;
+import javax.faces.context.FacesContext;
+import javax.faces.convert.Converter;
+import javax.faces.convert.ConverterException;
+
+/**
+ * Base of the application wide JSF converters for entities.
+ * <p/>
+ * One converter instance per entity type is shared by all views. Converted
+ * ids are resolved from an identity cache of detached entities, the
+ * database is only used on a miss. Reference data can be loaded into the
+ * cache completely on the first miss. Subclasses drop the cache, when
+ * entities of their type are written.
+ * @param <T> type of the entity.
+ */
+public abstract class EntityConverter<T> implements Converter {
+
+	/**
+	 * Maximum number of cached entities, the cache is dropped when it is reached.
+	 */
+	private static final int MAX_ENTRIES = 2000;
+
+	/**
+	 * Detached entities by id.
+	 */
+	private final ConcurrentMap<Integer, T> identities = new ConcurrentHashMap<Integer, T>();
+
+	@Override
+	public Object getAsObject(FacesContext context, UIComponent component, String value) {
+
+		if (value == null || value.isEmpty()) {
+			return null;
+		}
+		Integer id;
+		try {
+			id = Integer.valueOf(value);
+		} catch (NumberFormatException e) {
+			throw new ConverterException(e);
+		}
+
+		T entity = this.identities.get(id);
+		if (entity != null) {
+			return entity;
+		}
+		if (this.identities.isEmpty()) {
+			List<T> all = loadAll();
+			if (all != null) {
+				for (T each : all) {
+					this.identities.put(getId(each), each);
+				}
+				entity = this.identities.get(id);
+				if (entity != null) {
+					return entity;
+				}
+			}
+		}
+
+		entity = load(id);
+		if (entity != null) {
+			if (this.identities.size() >= MAX_ENTRIES) {
+				this.identities.clear();
+			}
+			this.identities.put(id, entity);
+		}
+		return entity;
+	}
+
+	@Override
+	public String getAsString(FacesContext context, UIComponent component, Object value) {
+
+		if (value == null) {
+			return "";
+		}
+		return String.valueOf(getId(getType().cast(value)));
+	}
+
+	/**
+	 * Drops all cached entities.
+	 */
+	protected void invalidate() {
+		this.identities.clear();
+	}
+
+	/**
+	 * Drops one cached entity.
+	 */
+	protected void invalidate(Integer id) {
+		this.identities.remove(id);
+	}
+
+	/**
+	 * Returns the class of the converted entities.
+	 */
+	protected abstract Class<T> getType();
+
+	/**
+	 * Returns the id of an entity.
+	 */
+	protected abstract Integer getId(T entity);
+
+	/**
+	 * Loads one entity from the database.
+	 * @return detached entity, or null if it doesn't exists.
+	 */
+	protected abstract T load(Integer id);
+
+	/**
+	 * Loads all entities of a reference table.
+	 * @return list of detached entities, or null if the table is too large to be loaded completely.
+	 */
+	protected List<T> loadAll() {
+		return null;
+	}
+}
@@ -0,0 +1,102 @@
+package org.el.ghostnetfishing.view;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Set-based deletion of persons, person types, fishnet states and fishnets.
+ * <p/>
+ * The children of a deleted entity are detached, not deleted: one bulk
+ * UPDATE sets their reference to null, then one DELETE removes the entity.
+ * Neither the children nor the collections of the parent are loaded, so
+ * the memory used doesn't depend on the number of children. The orphan
+ * removal declared on the collections is deliberately not used, a fishnet
+ * stays recorded after its reporter or state was deleted.
+ * <p/>
+ * Bulk statements bypass the persistence context. It is flushed before
+ * and cleared after each deletion, so no managed entity keeps an outdated
+ * reference. Hibernate evicts the second level cache regions of the
+ * changed entities itself.
+ */
+public final class EntityDeletes {
+
+	/**
+	 * Detaches the fishnets and queued reports of a person and deletes it.
+	 * @param manager is the entity manager of the current transaction.
+	 * @param personId of the person to delete.
+	 * @return true, if the person existed.
+	 */
+	public static boolean deletePerson(EntityManager manager, int personId) {
+
+		manager.flush();
+		manager.createQuery("update Fishnet f set f.personBySalvagingPersonId = null, f.version = f.version + 1"
+				+ " where f.personBySalvagingPersonId.id = :id")
+				.setParameter("id", personId)
+				.executeUpdate();
+		manager.createQuery("update Fishnet f set f.personByRecoveryMessagingPersonId = null, f.version = f.version + 1"
+				+ " where f.personByRecoveryMessagingPersonId.id = :id")
+				.setParameter("id", personId)
+				.executeUpdate();
+
+		// reports not yet stored must not reference the person either
+		manager.createQuery("update FishnetReport r set r.salvagingPersonId = null where r.salvagingPersonId = :id")
+				.setParameter("id", personId)
+				.executeUpdate();
+		return delete(manager, "Person", personId);
+	}
+
+	/**
+	 * Detaches the persons of a person type and deletes it.
+	 * @param manager is the entity manager of the current transaction.
+	 * @param personTypeId of the person type to delete.
+	 * @return true, if the person type existed.
+	 */
+	public static boolean deletePersonType(EntityManager manager, int personTypeId) {
+
+		manager.flush();
+		manager.createQuery("update Person p set p.personType = null where p.personType.id = :id")
+				.setParameter("id", personTypeId)
+				.executeUpdate();
+		return delete(manager, "PersonType", personTypeId);
+	}
+
+	/**
+	 * Detaches the fishnets of a fishnet state and deletes it.
+	 * @param manager is the entity manager of the current transaction.
+	 * @param fishnetStateId of the fishnet state to delete.
+	 * @return true, if the fishnet state existed.
+	 */
+	public static boolean deleteFishnetState(EntityManager manager, int fishnetStateId) {
+
+		manager.flush();
+		manager.createQuery("update Fishnet f set f.fishnetState = null, f.version = f.version + 1"
+				+ " where f.fishnetState.id = :id")
+				.setParameter("id", fishnetStateId)
+				.executeUpdate();
+		return delete(manager, "FishnetState", fishnetStateId);
+	}
+
+	/**
+	 * Deletes a fishnet without loading the collections of its state and persons.
+	 * @param manager is the entity manager of the current transaction.
+	 * @param fishnetId of the fishnet to delete.
+	 * @return true, if the fishnet existed.
+	 */
+	public static boolean deleteFishnet(EntityManager manager, int fishnetId) {
+
+		manager.flush();
+		return delete(manager, "Fishnet", fishnetId);
+	}
+
+	private static boolean delete(EntityManager manager, String entityName, int id) {
+
+		int deleted = manager.createQuery("delete from " + entityName + " e where e.id = :id")
+				.setParameter("id", id)
+				.executeUpdate();
+		manager.clear();
+		return deleted > 0;
+	}
+
+	private EntityDeletes() {
+		// Can never be called
+	}
+}
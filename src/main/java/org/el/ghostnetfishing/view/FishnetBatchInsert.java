@@ -0,0 +1,87 @@
+package org.el.ghostnetfishing.view;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.el.ghostnetfishing.model.Fishnet;
+import org.el.ghostnetfishing.model.FishnetReport;
+import org.el.ghostnetfishing.model.GeoGrid;
+import org.hibernate.Session;
+
+/**
+ * Inserts many fishnets with JDBC batches.
+ * <p/>
+ * Fishnet ids are generated by the database (IDENTITY), so Hibernate
+ * writes every persisted fishnet with a single INSERT. These helpers send
+ * the rows in batches of the size configured for the persistence unit on
+ * the connection of the current transaction and read the generated ids
+ * afterwards. The inserted fishnets are not managed
+ * by the persistence context.
+ */
+public final class FishnetBatchInsert {
+
+	private static final String INSERT = "insert into %s"
+			+ " (fishnet_state_id, salvaging_person_id, size, latitude, longitude, grid_cell, version)"
+			+ " values (?, ?, ?, ?, ?, ?, 0)";
+
+	/**
+	 * Inserts a fishnet per report.
+	 * @param manager is the entity manager of the current transaction.
+	 * @param reports to store, the salvaging person ids must exist or be null.
+	 * @param stateId of the new fishnets.
+	 * @return snapshots of the inserted fishnets in the order of the reports.
+	 */
+	public static List<FishnetChangedEvent.Snapshot> insert(EntityManager manager, final List<FishnetReport> reports,
+			final int stateId) {
+
+		final int batchSize = JdbcBatches.size(manager);
+		final String insert = String.format(INSERT, JdbcBatches.table(manager, Fishnet.class));
+
+		// pending changes of the context must reach the database first
+		manager.flush();
+		return manager.unwrap(Session.class).doReturningWork(connection -> {
+
+			List<FishnetChangedEvent.Snapshot> snapshots = new ArrayList<FishnetChangedEvent.Snapshot>(reports.size());
+			try (PreparedStatement statement = connection.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS)) {
+				for (int from = 0; from < reports.size(); from += batchSize) {
+					List<FishnetReport> batch = reports.subList(from, Math.min(from + batchSize, reports.size()));
+					for (FishnetReport report : batch) {
+						statement.setInt(1, stateId);
+						if (report.getSalvagingPersonId() == null) {
+							statement.setNull(2, Types.INTEGER);
+						} else {
+							statement.setInt(2, report.getSalvagingPersonId());
+						}
+						statement.setDouble(3, report.getSize());
+						statement.setDouble(4, report.getLatitude());
+						statement.setDouble(5, report.getLongitude());
+						statement.setInt(6, GeoGrid.cellOf(report.getLatitude(), report.getLongitude()));
+						statement.addBatch();
+					}
+					statement.executeBatch();
+
+					// generated ids come in the order of the batch
+					int index = 0;
+					try (ResultSet keys = statement.getGeneratedKeys()) {
+						while (keys.next() && index < batch.size()) {
+							FishnetReport report = batch.get(index++);
+							snapshots.add(new FishnetChangedEvent.Snapshot(keys.getInt(1), report.getLatitude(),
+									report.getLongitude(), report.getSize(), stateId, null));
+						}
+					}
+				}
+			}
+			return snapshots;
+		});
+	}
+
+	private FishnetBatchInsert() {
+		// Can never be called
+	}
+}
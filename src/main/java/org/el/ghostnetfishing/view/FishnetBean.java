@@ -2,30 +2,35 @@ package org.el.ghostnetfishing.view;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-import javax.annotation.Resource;
-import javax.ejb.SessionContext;
 import javax.ejb.Stateful;
 import javax.enterprise.context.Conversation;
 import javax.enterprise.context.ConversationScoped;
+import javax.enterprise.event.Event;
 import javax.faces.application.FacesMessage;
-import javax.faces.component.UIComponent;
 import javax.faces.context.FacesContext;
 import javax.faces.convert.Converter;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
-import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
 
 import org.el.ghostnetfishing.model.Fishnet;
+import org.el.ghostnetfishing.model.FishnetReport;
+import org.el.ghostnetfishing.model.FishnetRow;
 import org.el.ghostnetfishing.model.FishnetState;
+import org.el.ghostnetfishing.model.GeoGrid;
 import org.el.ghostnetfishing.model.Person;
 
 /**
@@ -99,6 +104,30 @@ public class FishnetBean implements Serializable {
 	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit", type = PersistenceContextType.EXTENDED)
 	private EntityManager entityManager;
 
+	/**
+	 * Search state of the bean.
+	 */
+	@Inject
+	private SearchPages pages;
+
+	/**
+	 * Notifies caches about written Fishnet entities.
+	 */
+	@Inject
+	private Event<EntityChangedEvent> entityChanged;
+
+	/**
+	 * Ingestion queue for new fishnet reports.
+	 */
+	@Inject
+	private FishnetReportQueue reportQueue;
+
+	/**
+	 * Finds relevant fishnets near a new report.
+	 */
+	@Inject
+	private FishnetProximityIndex proximityIndex;
+
 	/**
 	 * Creates a new session for conversation.
 	 * @return redirect to fishnet create mask.
@@ -125,6 +154,8 @@ public class FishnetBean implements Serializable {
 			this.conversation.setTimeout(1800000L);
 		}
 
+		this.pages.enforceLimit(this.entityManager);
+
 		if (this.id == null) {
 			this.fishnet = this.example;
 		} else {
@@ -138,7 +169,8 @@ public class FishnetBean implements Serializable {
 	 * @return Fishnet with wanted id.
 	 */
 	public Fishnet findById(Integer id) {
-		return this.entityManager.find(Fishnet.class, id);
+		return this.entityManager.find(Fishnet.class, id, Collections.<String, Object> singletonMap(
+				KeysetPaginator.LOAD_GRAPH, this.entityManager.getEntityGraph(Fishnet.GRAPH_DETAILS)));
 	}
 
 	/*
@@ -150,6 +182,7 @@ public class FishnetBean implements Serializable {
 	 * if exists do an update on the exists entity.
 	 * @return a redirecting path or null on error.
 	 */
+	@Monitored
 	public String update() {
 		this.conversation.end();
 		Fishnet fishnet = this.fishnet;
@@ -157,15 +190,30 @@ public class FishnetBean implements Serializable {
 		// creating a fishnet with the fishnetstate reported
 		fishnet.setFishnetState(new FishnetState(FISHNET_REPORTED_STATE));
 		
-		// add the reporting person id to the fishnet
-		fishnet.setPersonBySalvagingPersonId(entityManager.find(Person.class, personId));
-		
 		try {
 			if (this.id == null) {
-				this.entityManager.persist(fishnet);
+
+				// a net already reported nearby with a similar size is shown instead of reported twice
+				Integer duplicate = this.proximityIndex.findDuplicate(fishnet.getLatitude(),
+						fishnet.getLongitude(), fishnet.getSize());
+				if (duplicate != null) {
+					FacesContext context = FacesContext.getCurrentInstance();
+					context.getExternalContext().getFlash().setKeepMessages(true);
+					context.addMessage(null, new FacesMessage("Dieses Fischnetz wurde bereits gemeldet."));
+					return "/fishnet/view?faces-redirect=true&id=" + duplicate;
+				}
+
+				// the report is acknowledged at once and stored as fishnet by the queue
+				this.reportQueue.enqueue(new FishnetReport(this.personId == 0 ? null : this.personId,
+						fishnet.getSize(), fishnet.getLatitude(), fishnet.getLongitude()));
 				return "/index?faces-redirect=true";
 			} else {
-				this.entityManager.merge(fishnet);
+				
+				// add the reporting person id to the fishnet
+				fishnet.setPersonBySalvagingPersonId(entityManager.find(Person.class, personId));
+				FishnetChangedEvent.Snapshot before = loadSnapshot(this.entityManager, fishnet.getId());
+				fishnet = this.entityManager.merge(fishnet);
+				this.entityChanged.fire(new FishnetChangedEvent(before, FishnetChangedEvent.Snapshot.of(fishnet)));
 				return "create?faces-redirect=true&id=" + fishnet.getId();
 			}
 		} catch (Exception e) {
@@ -179,30 +227,16 @@ public class FishnetBean implements Serializable {
 	 * Deletes current Fishnet object and references to relevant objects.
 	 * @return a redirecting path or null on error.
 	 */
+	@Monitored
 	public String delete() {
 		this.conversation.end();
 
 		try {
 			Fishnet deletableEntity = findById(getId());
-			FishnetState fishnetState = deletableEntity.getFishnetState();
-			fishnetState.getFishnets().remove(deletableEntity);
-			deletableEntity.setFishnetState(null);
-			this.entityManager.merge(fishnetState);
-			Person personBySalvagingPersonId = deletableEntity
-					.getPersonBySalvagingPersonId();
-			personBySalvagingPersonId.getFishnetsForSalvagingPersonId().remove(
-					deletableEntity);
-			deletableEntity.setPersonBySalvagingPersonId(null);
-			this.entityManager.merge(personBySalvagingPersonId);
-			Person personByRecoveryMessagingPersonId = deletableEntity
-					.getPersonByRecoveryMessagingPersonId();
-			personByRecoveryMessagingPersonId
-					.getFishnetsForRecoveryMessagingPersonId().remove(
-							deletableEntity);
-			deletableEntity.setPersonByRecoveryMessagingPersonId(null);
-			this.entityManager.merge(personByRecoveryMessagingPersonId);
-			this.entityManager.remove(deletableEntity);
-			this.entityManager.flush();
+			FishnetChangedEvent.Snapshot before = FishnetChangedEvent.Snapshot.of(deletableEntity);
+			if (EntityDeletes.deleteFishnet(this.entityManager, deletableEntity.getId())) {
+				this.entityChanged.fire(new FishnetChangedEvent(before, null));
+			}
 			return "search?faces-redirect=true";
 		} catch (Exception e) {
 			FacesContext.getCurrentInstance().addMessage(null,
@@ -211,42 +245,51 @@ public class FishnetBean implements Serializable {
 		}
 	}
 
+	/**
+	 * Reads the stored values of a fishnet, ignoring changes not yet flushed.
+	 * @param manager is the entity manager provided by the client.
+	 * @param id of the fishnet.
+	 * @return snapshot of the stored fishnet, or null if it doesn't exists.
+	 */
+	static FishnetChangedEvent.Snapshot loadSnapshot(EntityManager manager, int id) {
+
+		List<Object[]> rows = manager.createQuery(
+				"select f.latitude, f.longitude, f.size, s.id, r.id from Fishnet f"
+				+ " left join f.fishnetState s left join f.personByRecoveryMessagingPersonId r"
+				+ " where f.id = :id", Object[].class)
+				.setParameter("id", id)
+				.setFlushMode(FlushModeType.COMMIT)
+				.getResultList();
+		if (rows.isEmpty()) {
+			return null;
+		}
+		Object[] row = rows.get(0);
+		return new FishnetChangedEvent.Snapshot(id, (Double) row[0], (Double) row[1], (Double) row[2],
+				(Integer) row[3], (Integer) row[4]);
+	}
+
 	/*
 	 * Support searching Fishnet entities with pagination.
 	 */
 
-	/**
-	 * Page position.
-	 */
-	private int page;
-	
-	/**
-	 * Page counter.
-	 */
-	private long count;
-	
 	/**
 	 * List of fishnet objects.
 	 */
-	private List<Fishnet> pageItems;
+	private List<FishnetRow> pageItems;
 
 	/**
 	 * Used as search parameter in search view.
 	 */
 	private Fishnet example = new Fishnet();
 
-	public int getPage() {
-		return this.page;
-	}
-
-	public void setPage(int page) {
-		this.page = page;
-	}
-
 	public int getPageSize() {
 		return 10;
 	}
 
+	public SearchPages getPages() {
+		return this.pages;
+	}
+
 	public Fishnet getExample() {
 		return this.example;
 	}
@@ -260,35 +303,47 @@ public class FishnetBean implements Serializable {
 	 * @return null.
 	 */
 	public String search() {
-		this.page = 0;
+		this.pages.reset();
 		return null;
 	}
 
 	/**
 	 * When the user paginates through the page, it retrieves data for display a list of items on the page.
 	 */
+	@Monitored
 	public void paginate() {
 
-		CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
+		// Populate the count, counted once per search until fishnets are written
+
+		this.pages.count(Fishnet.class, getSearchKey(), () -> {
+			CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
+			CriteriaQuery<Long> countCriteria = builder.createQuery(Long.class);
+			Root<Fishnet> root = countCriteria.from(Fishnet.class);
+			return this.entityManager.createQuery(countCriteria.select(builder.count(root))
+					.where(getSearchPredicates(root))).getSingleResult();
+		});
 
-		// Populate this.count
+		// Populate this.pageItems, seeking behind the last row of the previous page
 
-		CriteriaQuery<Long> countCriteria = builder.createQuery(Long.class);
-		Root<Fishnet> root = countCriteria.from(Fishnet.class);
-		countCriteria = countCriteria.select(builder.count(root)).where(
-				getSearchPredicates(root));
-		this.count = this.entityManager.createQuery(countCriteria)
-				.getSingleResult();
+		CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
+		this.pageItems = this.pages.paginate(this.entityManager, null, Fishnet.class, FishnetRow.class,
+				root -> getRowSelection(builder, root), this::getSearchPredicates,
+				row -> new KeysetPaginator.Cursor(null, row.getId()), getPageSize());
+	}
 
-		// Populate this.pageItems
+	/**
+	 * Builds the selection of a read-only {@link FishnetRow}, joining the optional state and recoverer.
+	 * @param builder of the query.
+	 * @param root as Fishnet object.
+	 * @return constructor expression of the row.
+	 */
+	static Selection<FishnetRow> getRowSelection(CriteriaBuilder builder, Root<Fishnet> root) {
 
-		CriteriaQuery<Fishnet> criteria = builder.createQuery(Fishnet.class);
-		root = criteria.from(Fishnet.class);
-		TypedQuery<Fishnet> query = this.entityManager.createQuery(criteria
-				.select(root).where(getSearchPredicates(root)));
-		query.setFirstResult(this.page * getPageSize()).setMaxResults(
-				getPageSize());
-		this.pageItems = query.getResultList();
+		Join<Fishnet, FishnetState> state = root.join("fishnetState", JoinType.LEFT);
+		Join<Fishnet, Person> recoverer = root.join("personByRecoveryMessagingPersonId", JoinType.LEFT);
+		return builder.construct(FishnetRow.class, root.get("id"), root.get("size"), root.get("latitude"),
+				root.get("longitude"), state.get("id"), state.get("description"), recoverer.get("id"),
+				root.get("version"));
 	}
 
 	/**
@@ -323,12 +378,57 @@ public class FishnetBean implements Serializable {
 		return predicatesList.toArray(new Predicate[predicatesList.size()]);
 	}
 
-	public List<Fishnet> getPageItems() {
+	/**
+	 * Returns the search predicates normalized as key of the {@link CountCache}.
+	 * @return search key, empty for an unfiltered search.
+	 */
+	private String getSearchKey() {
+
+		FishnetState fishnetState = this.example.getFishnetState();
+		Person personBySalvagingPersonId = this.example.getPersonBySalvagingPersonId();
+		Person personByRecoveryMessagingPersonId = this.example.getPersonByRecoveryMessagingPersonId();
+		return CountCache.searchKey("fishnetState", fishnetState == null ? null : fishnetState.getId(),
+				"personBySalvagingPersonId", personBySalvagingPersonId == null ? null : personBySalvagingPersonId.getId(),
+				"personByRecoveryMessagingPersonId",
+				personByRecoveryMessagingPersonId == null ? null : personByRecoveryMessagingPersonId.getId());
+	}
+
+	public List<FishnetRow> getPageItems() {
 		return this.pageItems;
 	}
 
-	public long getCount() {
-		return this.count;
+	/*
+	 * Support spatial searches on Fishnet entities.
+	 */
+
+	/**
+	 * Returns an array with predicates restricting fishnets to a bounding box.
+	 * The grid cell ranges narrow the search down to the index, the coordinates cut the cells at the edges.
+	 * @param builder of the query.
+	 * @param root as Fishnet object.
+	 * @return array of bounding box predicates.
+	 */
+	static Predicate[] getBoundingBoxPredicates(CriteriaBuilder builder, Root<Fishnet> root,
+			double south, double west, double north, double east) {
+
+		List<Predicate> predicatesList = new ArrayList<Predicate>();
+
+		List<int[]> ranges = GeoGrid.cellRangesOf(south, west, north, east);
+		Predicate[] cells = new Predicate[ranges.size()];
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] = builder.between(root.<Integer> get("gridCell"), ranges.get(i)[0], ranges.get(i)[1]);
+		}
+		predicatesList.add(cells.length == 1 ? cells[0] : builder.or(cells));
+		predicatesList.add(builder.between(root.<Double> get("latitude"),
+				Math.min(south, north), Math.max(south, north)));
+		if (west <= east) {
+			predicatesList.add(builder.between(root.<Double> get("longitude"), west, east));
+		} else {
+			predicatesList.add(builder.or(
+					builder.greaterThanOrEqualTo(root.<Double> get("longitude"), west),
+					builder.lessThanOrEqualTo(root.<Double> get("longitude"), east)));
+		}
+		return predicatesList.toArray(new Predicate[predicatesList.size()]);
 	}
 
 	/*
@@ -348,37 +448,18 @@ public class FishnetBean implements Serializable {
 				criteria.select(criteria.from(Fishnet.class))).getResultList();
 	}
 
-	@Resource
-	private SessionContext sessionContext;
+	/**
+	 * Application wide converter with a cache of Fishnet entities.
+	 */
+	@Inject
+	private FishnetConverter converter;
 
 	/**
 	 * Converts an object to a String for displaying it as dataset.
-	 * @return object as string.
+	 * @return the shared converter of Fishnet entities.
 	 */
 	public Converter getConverter() {
-
-		final FishnetBean ejbProxy = this.sessionContext
-				.getBusinessObject(FishnetBean.class);
-
-		return new Converter() {
-
-			@Override
-			public Object getAsObject(FacesContext context,
-					UIComponent component, String value) {
-
-				return ejbProxy.findById(Integer.valueOf(value));
-			}
-
-			@Override
-			public String getAsString(FacesContext context,
-					UIComponent component, Object value) {
-
-				if (value == null) {
-					return "";
-				}
-				return String.valueOf(((Fishnet) value).getId());
-			}
-		};
+		return this.converter;
 	}
 
 	/*
@@ -0,0 +1,140 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.Serializable;
+
+import org.el.ghostnetfishing.model.Fishnet;
+import org.el.ghostnetfishing.model.FishnetRow;
+
+/**
+ * CDI event fired, when a single fishnet is created, changed or deleted.
+ * <p/>
+ * Carries the values before and after the write, so that observers keeping
+ * aggregates in memory can apply the difference instead of reloading.
+ * Observers of {@link EntityChangedEvent} receive it as well; a plain
+ * EntityChangedEvent for Fishnet means an unknown set of fishnets changed.
+ */
+public class FishnetChangedEvent extends EntityChangedEvent {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Values before the write, null when the fishnet is created.
+	 */
+	private final Snapshot before;
+
+	/**
+	 * Values after the write, null when the fishnet is deleted.
+	 */
+	private final Snapshot after;
+
+	public FishnetChangedEvent(Snapshot before, Snapshot after) {
+		super(Fishnet.class);
+		this.before = before;
+		this.after = after;
+	}
+
+	public Snapshot getBefore() {
+		return this.before;
+	}
+
+	public Snapshot getAfter() {
+		return this.after;
+	}
+
+	/**
+	 * Immutable values of a fishnet at one point in time.
+	 */
+	public static class Snapshot implements Serializable {
+
+		/**
+		 * Uniquely identify the version of a serializable.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		private final int id;
+
+		private final double latitude;
+
+		private final double longitude;
+
+		private final double size;
+
+		/**
+		 * Id of the fishnet state, null without state.
+		 */
+		private final Integer stateId;
+
+		/**
+		 * Id of the recovering person, null without recoverer.
+		 */
+		private final Integer recovererId;
+
+		public Snapshot(int id, double latitude, double longitude, double size, Integer stateId, Integer recovererId) {
+			this.id = id;
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.size = size;
+			this.stateId = stateId;
+			this.recovererId = recovererId;
+		}
+
+		/**
+		 * Takes the current values of a fishnet.
+		 * @param fishnet with id.
+		 * @return snapshot of the fishnet.
+		 */
+		public static Snapshot of(Fishnet fishnet) {
+			return new Snapshot(fishnet.getId(), fishnet.getLatitude(), fishnet.getLongitude(), fishnet.getSize(),
+					fishnet.getFishnetState() == null ? null : fishnet.getFishnetState().getId(),
+					fishnet.getPersonByRecoveryMessagingPersonId() == null ? null
+							: fishnet.getPersonByRecoveryMessagingPersonId().getId());
+		}
+
+		/**
+		 * Creates a snapshot from a read-only row.
+		 * @param row of a fishnet list.
+		 * @return snapshot of the fishnet.
+		 */
+		public static Snapshot of(FishnetRow row) {
+			return new Snapshot(row.getId(), row.getLatitude(), row.getLongitude(), row.getSize(),
+					row.getStateId(), row.getRecovererId());
+		}
+
+		/**
+		 * Copies the snapshot with another state and recoverer.
+		 * @param stateId of the new state.
+		 * @param recovererId of the new recovering person.
+		 * @return changed copy.
+		 */
+		public Snapshot withState(Integer stateId, Integer recovererId) {
+			return new Snapshot(this.id, this.latitude, this.longitude, this.size, stateId, recovererId);
+		}
+
+		public int getId() {
+			return this.id;
+		}
+
+		public double getLatitude() {
+			return this.latitude;
+		}
+
+		public double getLongitude() {
+			return this.longitude;
+		}
+
+		public double getSize() {
+			return this.size;
+		}
+
+		public Integer getStateId() {
+			return this.stateId;
+		}
+
+		public Integer getRecovererId() {
+			return this.recovererId;
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package org.el.ghostnetfishing.view;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.el.ghostnetfishing.model.Fishnet;
+import org.el.ghostnetfishing.model.FishnetCluster;
+import org.el.ghostnetfishing.model.FishnetState;
+
+/**
+ * FishnetClusterIndex aggregates the fishnets relevant for recovery per zoom level and cell of the worldmap.
+ * <p/>
+ * Every zoom level up to {@link #MAX_ZOOM} divides each map tile into
+ * {@link #CELLS_PER_TILE} x {@link #CELLS_PER_TILE} cells in web mercator
+ * projection and keeps count, centroid and total size per non empty cell.
+ * The aggregates are built on first use, published through a volatile
+ * field and then changed incrementally with every {@link FishnetChangedEvent}.
+ * Map requests read them concurrently under a read lock, only applying an
+ * event takes the write lock. Changes of an unknown set of fishnets or of
+ * fishnet states mark the index for a rebuild, the outdated cells are
+ * served until the rebuild is published.
+ */
+
+@Singleton
+@Lock(LockType.READ)
+public class FishnetClusterIndex {
+
+	/**
+	 * Highest zoom level with clusters, above it the map shows single markers.
+	 */
+	public static final int MAX_ZOOM = 7;
+
+	/**
+	 * Number of cells per map tile and axis, 4 gives cells of 64 pixels.
+	 */
+	private static final int CELLS_PER_TILE = 4;
+
+	/**
+	 * Number of fishnets read per query while building.
+	 */
+	private static final int BUILD_CHUNK_SIZE = 10000;
+
+	/**
+	 * Latitude limit of the web mercator projection.
+	 */
+	private static final double MAX_LATITUDE = 85.05112878;
+
+	/**
+	 * Loading entity manager with unit name ghostNetFishing-persistence-unit.
+	 */
+	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit")
+	private EntityManager entityManager;
+
+	/**
+	 * Application wide cache of all fishnet states.
+	 */
+	@Inject
+	private FishnetStateCatalog catalog;
+
+	/**
+	 * Cells per zoom level, keyed by column and row, changed only under the write lock.
+	 */
+	private final LazySnapshot<List<Map<Long, Cell>>> levels = new LazySnapshot<List<Map<Long, Cell>>>(this::build);
+
+	/**
+	 * Returns the clusters of a zoom level inside a bounding box.
+	 * @param zoom level of the map, higher levels are answered with {@link #MAX_ZOOM}.
+	 * @param south lower latitude.
+	 * @param west left longitude.
+	 * @param north upper latitude.
+	 * @param east right longitude, smaller than west when the box crosses the date line.
+	 * @return list of clusters.
+	 */
+	public List<FishnetCluster> getClusters(int zoom, double south, double west, double north, double east) {
+
+		List<Map<Long, Cell>> levels = this.levels.get();
+		int level = Math.max(0, Math.min(MAX_ZOOM, zoom));
+		int cells = cellsPerAxis(level);
+		int firstColumn = column(west, cells);
+		int lastColumn = column(east, cells);
+		int firstRow = row(Math.max(south, north), cells);
+		int lastRow = row(Math.min(south, north), cells);
+		boolean wraps = lastColumn < firstColumn;
+
+		Map<Long, Cell> cellsOfLevel = levels.get(level);
+		int columns = wraps ? cells - firstColumn + lastColumn + 1 : lastColumn - firstColumn + 1;
+		List<FishnetCluster> clusters = new ArrayList<FishnetCluster>();
+		if ((long) columns * (lastRow - firstRow + 1) < cellsOfLevel.size()) {
+
+			// small boxes look up their cells
+			for (int row = firstRow; row <= lastRow; row++) {
+				for (int i = 0; i < columns; i++) {
+					Cell cell = cellsOfLevel.get(((long) ((firstColumn + i) % cells) << 32) | row);
+					if (cell != null) {
+						clusters.add(cell.toCluster());
+					}
+				}
+			}
+		} else {
+
+			// large boxes filter the non empty cells
+			for (Map.Entry<Long, Cell> entry : cellsOfLevel.entrySet()) {
+				int column = (int) (entry.getKey() >>> 32);
+				int row = (int) (entry.getKey() & 0xffffffffL);
+				boolean columnInside = wraps ? column >= firstColumn || column <= lastColumn
+						: column >= firstColumn && column <= lastColumn;
+				if (columnInside && row >= firstRow && row <= lastRow) {
+					clusters.add(entry.getValue().toCluster());
+				}
+			}
+		}
+		return clusters;
+	}
+
+	/**
+	 * Applies the changes of fishnets after the transaction succeeded.
+	 * @param event about the written entities.
+	 */
+	@Lock(LockType.WRITE)
+	public void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangedEvent event) {
+
+		List<Map<Long, Cell>> levels = this.levels.peek();
+		if (levels == null) {
+			return;
+		}
+		if (event instanceof FishnetChangedEvent) {
+			FishnetChangedEvent change = (FishnetChangedEvent) event;
+			if (isRelevant(change.getBefore())) {
+				apply(levels, change.getBefore(), -1);
+			}
+			if (isRelevant(change.getAfter())) {
+				apply(levels, change.getAfter(), 1);
+			}
+		} else if (event instanceof FishnetsDetachedEvent) {
+
+			// positions and states of the fishnets are unchanged
+		} else if (event.concerns(Fishnet.class) || event.concerns(FishnetState.class)) {
+			this.levels.markStale();
+		}
+	}
+
+	/**
+	 * Builds all levels from the database, reading the relevant fishnets in chunks ordered by id.
+	 */
+	private List<Map<Long, Cell>> build() {
+
+		List<Map<Long, Cell>> levels = new ArrayList<Map<Long, Cell>>(MAX_ZOOM + 1);
+		for (int level = 0; level <= MAX_ZOOM; level++) {
+			levels.add(new HashMap<Long, Cell>());
+		}
+
+		List<FishnetState> states = this.catalog.getAllRelevantForRecovery();
+		int after = 0;
+		while (!states.isEmpty()) {
+			List<Object[]> rows = this.entityManager.createQuery(
+					"select f.id, f.latitude, f.longitude, f.size from Fishnet f"
+					+ " where f.fishnetState in :states and f.id > :after order by f.id", Object[].class)
+					.setParameter("states", states)
+					.setParameter("after", after)
+					.setMaxResults(BUILD_CHUNK_SIZE)
+					.getResultList();
+			for (Object[] row : rows) {
+				add(levels, (Double) row[1], (Double) row[2], (Double) row[3], 1);
+			}
+			if (rows.size() < BUILD_CHUNK_SIZE) {
+				break;
+			}
+			after = (Integer) rows.get(rows.size() - 1)[0];
+		}
+		return levels;
+	}
+
+	private boolean isRelevant(FishnetChangedEvent.Snapshot snapshot) {
+
+		if (snapshot == null) {
+			return false;
+		}
+		FishnetState state = this.catalog.findById(snapshot.getStateId());
+		return state != null && state.isRelevantForRecoveryFlag();
+	}
+
+	private static void apply(List<Map<Long, Cell>> levels, FishnetChangedEvent.Snapshot snapshot, int sign) {
+		add(levels, snapshot.getLatitude(), snapshot.getLongitude(), snapshot.getSize(), sign);
+	}
+
+	/**
+	 * Adds or removes a fishnet on all levels.
+	 * @param sign is 1 to add and -1 to remove.
+	 */
+	private static void add(List<Map<Long, Cell>> levels, double latitude, double longitude, double size, int sign) {
+
+		for (int level = 0; level <= MAX_ZOOM; level++) {
+			int cells = cellsPerAxis(level);
+			Long key = ((long) column(longitude, cells) << 32) | row(latitude, cells);
+			Map<Long, Cell> cellsOfLevel = levels.get(level);
+			Cell cell = cellsOfLevel.get(key);
+			if (cell == null) {
+				cell = new Cell();
+				cellsOfLevel.put(key, cell);
+			}
+			cell.count += sign;
+			cell.latitudeSum += sign * latitude;
+			cell.longitudeSum += sign * longitude;
+			cell.totalSize += sign * size;
+			if (cell.count <= 0) {
+				cellsOfLevel.remove(key);
+			}
+		}
+	}
+
+	private static int cellsPerAxis(int level) {
+		return (1 << level) * CELLS_PER_TILE;
+	}
+
+	private static int column(double longitude, int cells) {
+		int column = (int) Math.floor((longitude + 180) / 360 * cells);
+		return Math.max(0, Math.min(cells - 1, column));
+	}
+
+	private static int row(double latitude, int cells) {
+		double radians = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+		double y = (1 - Math.log(Math.tan(radians) + 1 / Math.cos(radians)) / Math.PI) / 2;
+		return Math.max(0, Math.min(cells - 1, (int) Math.floor(y * cells)));
+	}
+
+	/**
+	 * Running sums of one cell.
+	 */
+	private static final class Cell {
+
+		private int count;
+
+		private double latitudeSum;
+
+		private double longitudeSum;
+
+		private double totalSize;
+
+		FishnetCluster toCluster() {
+			return new FishnetCluster(this.latitudeSum / this.count, this.longitudeSum / this.count,
+					this.count, this.totalSize);
+		}
+	}
+}
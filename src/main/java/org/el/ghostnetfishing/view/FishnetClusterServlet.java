@@ -0,0 +1,87 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.el.ghostnetfishing.model.FishnetCluster;
+
+/**
+ * Read endpoint for the clusters of the zoomed out worldmap.
+ * <p/>
+ * Returns the precomputed clusters of a zoom level inside a bounding box as
+ * compact JSON, one array [latitude, longitude, count, total size] per
+ * cluster. Uses the same validators as the marker endpoint.
+ */
+
+@WebServlet("/api/clusters")
+public class FishnetClusterServlet extends HttpServlet {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Incrementally maintained clusters.
+	 */
+	@Inject
+	private FishnetClusterIndex clusterIndex;
+
+	/**
+	 * Time of the last writes, used as validator.
+	 */
+	@Inject
+	private ModificationTracker modificationTracker;
+
+	/**
+	 * Writes the clusters of the requested zoom level and bounding box.
+	 * Parameter zoom is required, south, west, north and east are optional.
+	 */
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+		int zoom;
+		double[] box;
+		try {
+			zoom = Integer.parseInt(String.valueOf(request.getParameter("zoom")));
+			box = FishnetMarkerServlet.parseBoundingBox(request);
+		} catch (NumberFormatException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "invalid zoom or bounding box");
+			return;
+		}
+		if (box == null) {
+			box = new double[] { -90, -180, 90, 180 };
+		}
+
+		if (FishnetMarkerServlet.isNotModified(request, response, this.modificationTracker)) {
+			return;
+		}
+
+		List<FishnetCluster> clusters = this.clusterIndex.getClusters(zoom, box[0], box[1], box[2], box[3]);
+
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		try (JsonGenerator generator = Json.createGenerator(response.getWriter())) {
+			generator.writeStartObject()
+					.write("zoom", Math.min(zoom, FishnetClusterIndex.MAX_ZOOM))
+					.writeStartArray("clusters");
+			for (FishnetCluster cluster : clusters) {
+				generator.writeStartArray()
+						.write(cluster.getLatitude())
+						.write(cluster.getLongitude())
+						.write(cluster.getCount())
+						.write(cluster.getTotalSize())
+						.writeEnd();
+			}
+			generator.writeEnd().writeEnd();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package org.el.ghostnetfishing.view;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.el.ghostnetfishing.model.Fishnet;
+
+/**
+ * FishnetConverter converts Fishnet entities for select components of all views.
+ */
+
+@Named
+@ApplicationScoped
+public class FishnetConverter extends EntityConverter<Fishnet> {
+
+	/**
+	 * Loading entity manager with unit name ghostNetFishing-persistence-unit.
+	 */
+	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit")
+	private EntityManager entityManager;
+
+	/**
+	 * Drops the cached entities, after Fishnet entities are written successfully.
+	 * @param event about the written entities.
+	 */
+	public void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangedEvent event) {
+		if (event instanceof FishnetChangedEvent) {
+			FishnetChangedEvent change = (FishnetChangedEvent) event;
+			invalidate(change.getBefore() != null ? change.getBefore().getId() : change.getAfter().getId());
+		} else if (event.concerns(Fishnet.class)) {
+			invalidate();
+		}
+	}
+
+	@Override
+	protected Class<Fishnet> getType() {
+		return Fishnet.class;
+	}
+
+	@Override
+	protected Integer getId(Fishnet entity) {
+		return entity.getId();
+	}
+
+	@Override
+	protected Fishnet load(Integer id) {
+		return this.entityManager.find(Fishnet.class, id);
+	}
+}
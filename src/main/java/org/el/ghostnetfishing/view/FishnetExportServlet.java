@@ -0,0 +1,161 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Export endpoint for fishnets as CSV or GeoJSON.
+ * <p/>
+ * The fishnets are written to the response while they are read from the
+ * database, so the whole table can be exported. Parameters: format (csv or
+ * geojson, default csv), state (fishnet state id), salvager (id of the
+ * salvaging person), recoverer (id of the recovery messaging person) and
+ * the bounding box south, west, north and east. All parameters are
+ * optional, given filters must all match like in the fishnet search.
+ */
+
+@WebServlet("/api/export")
+public class FishnetExportServlet extends HttpServlet {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private static final String CSV_HEADER = "id,size,latitude,longitude,stateId,state,salvagingPersonId,recoveryMessagingPersonId";
+
+	@Inject
+	private FishnetExporter exporter;
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+		String format = request.getParameter("format");
+		boolean geoJson = "geojson".equalsIgnoreCase(format);
+		if (!geoJson && format != null && !format.isEmpty() && !"csv".equalsIgnoreCase(format)) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "unknown format");
+			return;
+		}
+
+		Integer stateId;
+		Integer salvagerId;
+		Integer recovererId;
+		double[] box;
+		try {
+			stateId = parseId(request.getParameter("state"));
+			salvagerId = parseId(request.getParameter("salvager"));
+			recovererId = parseId(request.getParameter("recoverer"));
+			box = FishnetMarkerServlet.parseBoundingBox(request);
+		} catch (NumberFormatException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "invalid filter");
+			return;
+		}
+
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Cache-Control", "no-store");
+		if (geoJson) {
+			response.setContentType("application/geo+json");
+			response.setHeader("Content-Disposition", "attachment; filename=\"fishnets.geojson\"");
+			writeGeoJson(response.getWriter(), stateId, salvagerId, recovererId, box);
+		} else {
+			response.setContentType("text/csv");
+			response.setHeader("Content-Disposition", "attachment; filename=\"fishnets.csv\"");
+			writeCsv(response.getWriter(), stateId, salvagerId, recovererId, box);
+		}
+	}
+
+	private void writeCsv(final Writer writer, Integer stateId, Integer salvagerId, Integer recovererId, double[] box)
+			throws IOException {
+
+		writer.write(CSV_HEADER);
+		writer.write("\r\n");
+		this.exporter.export(stateId, salvagerId, recovererId, box, row -> {
+			writer.write(String.valueOf(row[0]));
+			writer.write(',');
+			writer.write(String.valueOf(row[1]));
+			writer.write(',');
+			writer.write(String.valueOf(row[2]));
+			writer.write(',');
+			writer.write(String.valueOf(row[3]));
+			writer.write(',');
+			writer.write(row[4] == null ? "" : String.valueOf(row[4]));
+			writer.write(',');
+			writer.write(row[5] == null ? "" : quote((String) row[5]));
+			writer.write(',');
+			writer.write(row[6] == null ? "" : String.valueOf(row[6]));
+			writer.write(',');
+			writer.write(row[7] == null ? "" : String.valueOf(row[7]));
+			writer.write("\r\n");
+		});
+		writer.flush();
+	}
+
+	private void writeGeoJson(Writer writer, Integer stateId, Integer salvagerId, Integer recovererId, double[] box)
+			throws IOException {
+
+		try (final JsonGenerator generator = Json.createGenerator(writer)) {
+			generator.writeStartObject()
+					.write("type", "FeatureCollection")
+					.writeStartArray("features");
+			this.exporter.export(stateId, salvagerId, recovererId, box, row -> {
+				generator.writeStartObject()
+						.write("type", "Feature")
+						.write("id", (Integer) row[0])
+						.writeStartObject("geometry")
+						.write("type", "Point")
+						.writeStartArray("coordinates")
+						.write((Double) row[3])
+						.write((Double) row[2])
+						.writeEnd()
+						.writeEnd()
+						.writeStartObject("properties")
+						.write("size", (Double) row[1]);
+				writeNullable(generator, "stateId", (Integer) row[4]);
+				if (row[5] == null) {
+					generator.writeNull("state");
+				} else {
+					generator.write("state", (String) row[5]);
+				}
+				writeNullable(generator, "salvagingPersonId", (Integer) row[6]);
+				writeNullable(generator, "recoveryMessagingPersonId", (Integer) row[7]);
+				generator.writeEnd().writeEnd();
+			});
+			generator.writeEnd().writeEnd();
+		}
+	}
+
+	private static void writeNullable(JsonGenerator generator, String name, Integer value) {
+		if (value == null) {
+			generator.writeNull(name);
+		} else {
+			generator.write(name, value);
+		}
+	}
+
+	/**
+	 * Quotes a CSV field, if it contains a separator, quote or line break.
+	 */
+	private static String quote(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * Reads an optional id parameter.
+	 * @return id, or null if the parameter is missing or empty.
+	 * @throws NumberFormatException if the parameter is no number.
+	 */
+	private static Integer parseId(String value) throws NumberFormatException {
+		return value == null || value.isEmpty() ? null : Integer.valueOf(value);
+	}
+}
@@ -0,0 +1,121 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.el.ghostnetfishing.model.Fishnet;
+import org.el.ghostnetfishing.model.FishnetState;
+import org.el.ghostnetfishing.model.Person;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+
+/**
+ * FishnetExporter reads fishnets for an export row by row.
+ * <p/>
+ * The rows are read as scalars through a forward only cursor, which the
+ * MySQL driver streams from the server instead of buffering the whole
+ * result. Neither a result list nor entities are kept, so the memory used
+ * by an export doesn't depend on the number of fishnets. An export runs
+ * without transaction, so a long download doesn't keep one open.
+ */
+@Stateless
+public class FishnetExporter {
+
+	/**
+	 * Fetch size telling the MySQL driver to stream the result row by row.
+	 */
+	private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+	/**
+	 * Receives the exported rows in the order of their ids.
+	 */
+	public interface RowWriter {
+
+		/**
+		 * Writes one fishnet.
+		 * @param row with id, size, latitude, longitude, state id, state description,
+		 *            salvaging person id and recovery messaging person id, ids may be null.
+		 * @throws IOException if the output cannot be written, the export is aborted.
+		 */
+		void write(Object[] row) throws IOException;
+	}
+
+	/**
+	 * Loading entity manager with unit name ghostNetFishing-persistence-unit.
+	 */
+	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit")
+	private EntityManager entityManager;
+
+	/**
+	 * Exports the fishnets matching all given filters.
+	 * @param stateId of the fishnets, null for all states.
+	 * @param salvagerId of the salvaging person, null for all persons.
+	 * @param recovererId of the recovery messaging person, null for all persons.
+	 * @param box with south, west, north and east, null for the whole map.
+	 * @param writer receiving the rows.
+	 * @return number of exported fishnets.
+	 * @throws IOException if the writer fails.
+	 */
+	@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+	public long export(Integer stateId, Integer salvagerId, Integer recovererId, double[] box, RowWriter writer)
+			throws IOException {
+
+		CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
+		CriteriaQuery<Object[]> criteria = builder.createQuery(Object[].class);
+		Root<Fishnet> root = criteria.from(Fishnet.class);
+		Join<Fishnet, FishnetState> state = root.join("fishnetState", JoinType.LEFT);
+		Join<Fishnet, Person> salvager = root.join("personBySalvagingPersonId", JoinType.LEFT);
+		Join<Fishnet, Person> recoverer = root.join("personByRecoveryMessagingPersonId", JoinType.LEFT);
+
+		List<Predicate> predicatesList = new ArrayList<Predicate>();
+		if (stateId != null) {
+			predicatesList.add(builder.equal(state.get("id"), stateId));
+		}
+		if (salvagerId != null) {
+			predicatesList.add(builder.equal(salvager.get("id"), salvagerId));
+		}
+		if (recovererId != null) {
+			predicatesList.add(builder.equal(recoverer.get("id"), recovererId));
+		}
+		if (box != null) {
+			Collections.addAll(predicatesList,
+					FishnetBean.getBoundingBoxPredicates(builder, root, box[0], box[1], box[2], box[3]));
+		}
+
+		criteria.multiselect(root.get("id"), root.get("size"), root.get("latitude"), root.get("longitude"),
+				state.get("id"), state.get("description"), salvager.get("id"), recoverer.get("id"))
+				.where(predicatesList.toArray(new Predicate[predicatesList.size()]))
+				.orderBy(builder.asc(root.get("id")));
+
+		Query query = this.entityManager.createQuery(criteria).unwrap(Query.class)
+				.setReadOnly(true)
+				.setCacheable(false)
+				.setFetchSize(STREAMING_FETCH_SIZE);
+		ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+		long count = 0;
+		try {
+			while (results.next()) {
+				writer.write(results.get());
+				count++;
+			}
+		} finally {
+			results.close();
+		}
+		return count;
+	}
+}
@@ -0,0 +1,133 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+
+import javax.enterprise.context.SessionScoped;
+import javax.faces.application.FacesMessage;
+import javax.faces.context.FacesContext;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.servlet.http.Part;
+
+import org.el.ghostnetfishing.model.Person;
+
+/**
+ * FishnetImportBean uploads a file of fishnet sightings and shows the progress of its import.
+ * <p/>
+ * The upload is copied to a temporary file within the request, the import
+ * itself runs in the background. The last import of the session stays
+ * visible with its error report until the next one is started.
+ */
+
+@Named
+@SessionScoped
+public class FishnetImportBean implements Serializable {
+
+	/**
+	 * Uniquely identify the version of a serializable
+	 */
+	private static final long serialVersionUID = 1L;
+
+	@Inject
+	private FishnetImporter importer;
+
+	@Inject
+	private UserManagementBean userManagementBean;
+
+	/**
+	 * Uploaded file, only set within the request of the upload.
+	 */
+	private transient Part file;
+
+	/**
+	 * Reporting person of rows without person id.
+	 */
+	private Person person;
+
+	/**
+	 * Last import of the session.
+	 */
+	private FishnetImportJob job;
+
+	public Part getFile() {
+		return this.file;
+	}
+
+	public void setFile(Part file) {
+		this.file = file;
+	}
+
+	public Person getPerson() {
+		if (this.person == null) {
+			this.person = this.userManagementBean.getUser();
+		}
+		return this.person;
+	}
+
+	public void setPerson(Person person) {
+		this.person = person;
+	}
+
+	public FishnetImportJob getJob() {
+		return this.job;
+	}
+
+	/**
+	 * Starts the import of the uploaded file.
+	 * @return a redirecting path or null on error.
+	 */
+	public String start() {
+
+		FacesContext context = FacesContext.getCurrentInstance();
+		if (this.job != null && this.job.isRunning()) {
+			context.addMessage(null, new FacesMessage("Der letzte Import läuft noch."));
+			return null;
+		}
+		if (this.file == null || this.file.getSize() == 0) {
+			context.addMessage(null, new FacesMessage("Bitte eine CSV- oder GeoJSON-Datei auswählen."));
+			return null;
+		}
+
+		String name = this.file.getSubmittedFileName();
+		Path temp = null;
+		try (InputStream in = this.file.getInputStream()) {
+			temp = Files.createTempFile("fishnet-import", null);
+			Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+			this.job = new FishnetImportJob(name, Files.size(temp));
+		} catch (IOException e) {
+			deleteQuietly(temp);
+			context.addMessage(null, new FacesMessage(e.getMessage()));
+			return null;
+		} finally {
+			this.file = null;
+		}
+
+		this.importer.run(temp, formatOf(name), this.person == null ? null : this.person.getId(), this.job);
+		return "import?faces-redirect=true";
+	}
+
+	/**
+	 * Derives the format from the file extension, CSV unless it is JSON.
+	 */
+	private static FishnetImportParser.Format formatOf(String name) {
+		String lower = name == null ? "" : name.toLowerCase(Locale.ROOT);
+		return lower.endsWith(".json") || lower.endsWith(".geojson") ? FishnetImportParser.Format.GEOJSON
+				: FishnetImportParser.Format.CSV;
+	}
+
+	private static void deleteQuietly(Path path) {
+		if (path != null) {
+			try {
+				Files.deleteIfExists(path);
+			} catch (IOException e) {
+				// left to the cleanup of the temporary directory
+			}
+		}
+	}
+}
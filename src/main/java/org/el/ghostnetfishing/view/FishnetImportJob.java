@@ -0,0 +1,153 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and error report of one bulk import of fishnets.
+ * <p/>
+ * Written by the {@link FishnetImporter} while it runs and read by the
+ * import page. The error report keeps the first {@link #MAX_ERRORS} rejected
+ * rows only, the number of all rejected rows is counted nevertheless.
+ */
+public class FishnetImportJob implements Serializable {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Maximum number of errors in the report.
+	 */
+	public static final int MAX_ERRORS = 1000;
+
+	public enum State {
+		RUNNING, FINISHED, FAILED
+	}
+
+	private final String fileName;
+
+	private final long totalBytes;
+
+	private final AtomicLong bytesRead = new AtomicLong();
+
+	private final AtomicLong rowsRead = new AtomicLong();
+
+	private final AtomicLong imported = new AtomicLong();
+
+	private final AtomicLong duplicates = new AtomicLong();
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	private final List<String> errors = new ArrayList<String>();
+
+	private volatile State state = State.RUNNING;
+
+	private volatile String failure;
+
+	public FishnetImportJob(String fileName, long totalBytes) {
+		this.fileName = fileName;
+		this.totalBytes = totalBytes;
+	}
+
+	/**
+	 * Adds a rejected row to the report.
+	 * @param row number of the row or feature, starting with 1.
+	 * @param message why the row is rejected.
+	 */
+	public void reject(long row, String message) {
+
+		this.rejected.incrementAndGet();
+		synchronized (this.errors) {
+			if (this.errors.size() < MAX_ERRORS) {
+				this.errors.add(row + ": " + message);
+			}
+		}
+	}
+
+	void addBytesRead(long bytes) {
+		this.bytesRead.addAndGet(bytes);
+	}
+
+	void addRowRead() {
+		this.rowsRead.incrementAndGet();
+	}
+
+	void addImported(long count) {
+		this.imported.addAndGet(count);
+	}
+
+	void addDuplicates(long count) {
+		this.duplicates.addAndGet(count);
+	}
+
+	void finish() {
+		this.state = State.FINISHED;
+	}
+
+	void fail(String message) {
+		this.failure = message;
+		this.state = State.FAILED;
+	}
+
+	public String getFileName() {
+		return this.fileName;
+	}
+
+	public State getState() {
+		return this.state;
+	}
+
+	public boolean isRunning() {
+		return this.state == State.RUNNING;
+	}
+
+	public String getFailure() {
+		return this.failure;
+	}
+
+	/**
+	 * Share of the file read so far.
+	 * @return percent between 0 and 100.
+	 */
+	public int getPercent() {
+		if (this.state != State.RUNNING) {
+			return 100;
+		}
+		return this.totalBytes <= 0 ? 0 : (int) Math.min(100, this.bytesRead.get() * 100 / this.totalBytes);
+	}
+
+	public long getRowsRead() {
+		return this.rowsRead.get();
+	}
+
+	public long getImported() {
+		return this.imported.get();
+	}
+
+	public long getDuplicates() {
+		return this.duplicates.get();
+	}
+
+	public long getRejected() {
+		return this.rejected.get();
+	}
+
+	/**
+	 * Returns a copy of the error report.
+	 * @return list of errors, at most {@link #MAX_ERRORS}.
+	 */
+	public List<String> getErrors() {
+		synchronized (this.errors) {
+			return Collections.unmodifiableList(new ArrayList<String>(this.errors));
+		}
+	}
+
+	public boolean isErrorsTruncated() {
+		return this.rejected.get() > MAX_ERRORS;
+	}
+}
@@ -0,0 +1,374 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import javax.json.Json;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+
+/**
+ * Streaming readers of fishnet sightings in CSV and GeoJSON.
+ * <p/>
+ * Both formats are read row by row, resp. feature by feature, and every row
+ * is handed to a {@link RowHandler} before the next one is read, so memory
+ * stays constant for files of any size.
+ * <p/>
+ * CSV: one sighting per line with latitude, longitude, size and an optional
+ * person id, separated by comma or semicolon. A header line with the column
+ * names may define another order. With semicolons, a decimal comma is
+ * accepted as well.
+ * <p/>
+ * GeoJSON: a FeatureCollection of Point features, the coordinates are
+ * longitude and latitude, the properties contain size and optional personId.
+ */
+public final class FishnetImportParser {
+
+	public enum Format {
+		CSV, GEOJSON
+	}
+
+	/**
+	 * Sighting read from the file.
+	 */
+	public static class Row {
+
+		/**
+		 * Line of the CSV file, resp. number of the GeoJSON feature, starting with 1.
+		 */
+		private final long number;
+
+		private Double latitude;
+
+		private Double longitude;
+
+		private Double size;
+
+		private Integer personId;
+
+		/**
+		 * Why the row cannot be read, null if it is complete.
+		 */
+		private String error;
+
+		Row(long number) {
+			this.number = number;
+		}
+
+		public long getNumber() {
+			return this.number;
+		}
+
+		public Double getLatitude() {
+			return this.latitude;
+		}
+
+		public Double getLongitude() {
+			return this.longitude;
+		}
+
+		public Double getSize() {
+			return this.size;
+		}
+
+		public Integer getPersonId() {
+			return this.personId;
+		}
+
+		public String getError() {
+			return this.error;
+		}
+
+		private void fail(String error) {
+			if (this.error == null) {
+				this.error = error;
+			}
+		}
+
+		private void complete() {
+			if (this.latitude == null) {
+				fail("Breitengrad fehlt");
+			} else if (this.longitude == null) {
+				fail("Längengrad fehlt");
+			} else if (this.size == null) {
+				fail("Größe fehlt");
+			}
+		}
+	}
+
+	/**
+	 * Receives the rows in the order of the file.
+	 */
+	public interface RowHandler {
+		void handle(Row row);
+	}
+
+	private static final Pattern SEMICOLON = Pattern.compile(";");
+
+	private static final Pattern COMMA = Pattern.compile(",");
+
+	private static final int LATITUDE = 0;
+
+	private static final int LONGITUDE = 1;
+
+	private static final int SIZE = 2;
+
+	private static final int PERSON = 3;
+
+	/**
+	 * Reads all rows of a file.
+	 * @param format of the file.
+	 * @param reader of the file.
+	 * @param handler receiving the rows.
+	 * @throws IOException if the file cannot be read.
+	 * @throws javax.json.stream.JsonParsingException if GeoJSON is malformed.
+	 */
+	public static void parse(Format format, Reader reader, RowHandler handler) throws IOException {
+		if (format == Format.GEOJSON) {
+			parseGeoJson(reader, handler);
+		} else {
+			parseCsv(reader, handler);
+		}
+	}
+
+	private static void parseCsv(Reader reader, RowHandler handler) throws IOException {
+
+		BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+		int[] columns = { 0, 1, 2, 3 };
+		long number = 0;
+		String line;
+		while ((line = lines.readLine()) != null) {
+			number++;
+			if (number == 1 && line.startsWith("\uFEFF")) {
+				// byte order mark of spreadsheet exports
+				line = line.substring(1);
+			}
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			boolean semicolon = line.indexOf(';') >= 0;
+			String[] fields = (semicolon ? SEMICOLON : COMMA).split(line, -1);
+			if (number == 1 && isHeader(fields)) {
+				columns = columnsOf(fields);
+				continue;
+			}
+
+			Row row = new Row(number);
+			row.latitude = parseDouble(row, field(fields, columns[LATITUDE]), semicolon, "Breitengrad");
+			row.longitude = parseDouble(row, field(fields, columns[LONGITUDE]), semicolon, "Längengrad");
+			row.size = parseDouble(row, field(fields, columns[SIZE]), semicolon, "Größe");
+			String person = field(fields, columns[PERSON]);
+			if (person != null) {
+				try {
+					row.personId = Integer.valueOf(person);
+				} catch (NumberFormatException e) {
+					row.fail("Person ist keine Id: " + person);
+				}
+			}
+			row.complete();
+			handler.handle(row);
+		}
+	}
+
+	private static boolean isHeader(String[] fields) {
+
+		String first = field(fields, 0);
+		if (first == null) {
+			return false;
+		}
+		try {
+			Double.parseDouble(first.replace(',', '.'));
+			return false;
+		} catch (NumberFormatException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Maps the column names of a header line, unknown columns are ignored.
+	 */
+	private static int[] columnsOf(String[] header) {
+
+		int[] columns = { -1, -1, -1, -1 };
+		for (int i = 0; i < header.length; i++) {
+			String name = header[i].trim().replace("\"", "").toLowerCase(Locale.GERMAN);
+			if (name.startsWith("lat") || name.startsWith("breite")) {
+				columns[LATITUDE] = i;
+			} else if (name.startsWith("lon") || name.startsWith("lng") || name.startsWith("länge")) {
+				columns[LONGITUDE] = i;
+			} else if (name.startsWith("size") || name.startsWith("größe") || name.startsWith("groesse")) {
+				columns[SIZE] = i;
+			} else if (name.startsWith("person")) {
+				columns[PERSON] = i;
+			}
+		}
+		return columns;
+	}
+
+	private static String field(String[] fields, int column) {
+
+		if (column < 0 || column >= fields.length) {
+			return null;
+		}
+		String field = fields[column].trim();
+		if (field.length() >= 2 && field.startsWith("\"") && field.endsWith("\"")) {
+			field = field.substring(1, field.length() - 1).trim();
+		}
+		return field.isEmpty() ? null : field;
+	}
+
+	private static Double parseDouble(Row row, String field, boolean decimalComma, String name) {
+
+		if (field == null) {
+			return null;
+		}
+		try {
+			return Double.valueOf(decimalComma ? field.replace(',', '.') : field);
+		} catch (NumberFormatException e) {
+			row.fail(name + " ist keine Zahl: " + field);
+			return null;
+		}
+	}
+
+	private static void parseGeoJson(Reader reader, RowHandler handler) {
+
+		try (JsonParser parser = Json.createParser(reader)) {
+			int depth = 0;
+			// depth of the features array and of the current feature, -1 outside
+			int featuresDepth = -1;
+			int featureDepth = -1;
+			long number = 0;
+			String key = null;
+			String section = null;
+			Row row = null;
+
+			while (parser.hasNext()) {
+				Event event = parser.next();
+				switch (event) {
+				case KEY_NAME:
+					key = parser.getString();
+					continue;
+				case START_ARRAY:
+					depth++;
+					if (featuresDepth < 0 && depth == 2 && "features".equals(key)) {
+						featuresDepth = depth;
+					} else if (row != null && depth == featureDepth + 2 && "geometry".equals(section)
+							&& "coordinates".equals(key)) {
+						readPoint(parser, row);
+						depth--;
+					} else if (row != null) {
+						skip(parser);
+						depth--;
+					}
+					break;
+				case END_ARRAY:
+					if (depth == featuresDepth) {
+						featuresDepth = -1;
+					}
+					depth--;
+					break;
+				case START_OBJECT:
+					depth++;
+					if (featuresDepth > 0 && depth == featuresDepth + 1) {
+						row = new Row(++number);
+						featureDepth = depth;
+					} else if (row != null && depth == featureDepth + 1) {
+						section = key;
+					} else if (row != null) {
+						skip(parser);
+						depth--;
+					}
+					break;
+				case END_OBJECT:
+					if (row != null && depth == featureDepth) {
+						row.complete();
+						handler.handle(row);
+						row = null;
+						featureDepth = -1;
+					} else if (row != null && depth == featureDepth + 1) {
+						section = null;
+					}
+					depth--;
+					break;
+				case VALUE_NUMBER:
+					if (row != null && depth == featureDepth + 1 && "properties".equals(section)) {
+						if ("size".equals(key)) {
+							row.size = parser.getBigDecimal().doubleValue();
+						} else if ("personId".equals(key)) {
+							if (parser.isIntegralNumber()) {
+								row.personId = parser.getInt();
+							} else {
+								row.fail("personId ist keine Id: " + parser.getString());
+							}
+						}
+					}
+					break;
+				case VALUE_STRING:
+					if (row != null && depth == featureDepth + 1) {
+						if ("geometry".equals(section) && "type".equals(key) && !"Point".equals(parser.getString())) {
+							row.fail("Nur Punkt-Geometrien werden unterstützt: " + parser.getString());
+						} else if ("properties".equals(section) && "size".equals(key)) {
+							row.size = parseDouble(row, parser.getString(), false, "Größe");
+						}
+					}
+					break;
+				default:
+					break;
+				}
+				key = null;
+			}
+		}
+	}
+
+	/**
+	 * Reads longitude and latitude of a point, the array is started already.
+	 * An altitude is ignored.
+	 */
+	private static void readPoint(JsonParser parser, Row row) {
+
+		int index = 0;
+		while (parser.hasNext()) {
+			Event event = parser.next();
+			if (event == Event.END_ARRAY) {
+				break;
+			}
+			if (event == Event.VALUE_NUMBER) {
+				double value = parser.getBigDecimal().doubleValue();
+				if (index == 0) {
+					row.longitude = value;
+				} else if (index == 1) {
+					row.latitude = value;
+				}
+			} else {
+				row.fail("Koordinaten sind kein Punkt");
+				if (event == Event.START_ARRAY || event == Event.START_OBJECT) {
+					skip(parser);
+				}
+			}
+			index++;
+		}
+	}
+
+	/**
+	 * Skips the array or object, that is started already.
+	 */
+	private static void skip(JsonParser parser) {
+
+		int open = 1;
+		while (open > 0 && parser.hasNext()) {
+			Event event = parser.next();
+			if (event == Event.START_ARRAY || event == Event.START_OBJECT) {
+				open++;
+			} else if (event == Event.END_ARRAY || event == Event.END_OBJECT) {
+				open--;
+			}
+		}
+	}
+
+	private FishnetImportParser() {
+		// Can never be called
+	}
+}
@@ -0,0 +1,260 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.ejb.Asynchronous;
+import javax.ejb.SessionContext;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.el.ghostnetfishing.model.Fishnet;
+import org.el.ghostnetfishing.model.FishnetReport;
+import org.el.ghostnetfishing.model.GeoGrid;
+
+/**
+ * FishnetImporter stores the sightings of an uploaded file as reported fishnets.
+ * <p/>
+ * The file is parsed as stream in the background. Every row is validated
+ * against the constraints of {@link Fishnet}, valid rows are collected to
+ * batches, and each batch is stored with JDBC batches in its own
+ * transaction. Sightings with the same coordinates and size as a stored
+ * fishnet, or near a fishnet relevant for recovery or another row of the
+ * batch with a similar size, are skipped as duplicates. Progress
+ * and rejected rows are written to the {@link FishnetImportJob}.
+ */
+@Stateless
+public class FishnetImporter {
+
+	private static final Logger LOGGER = Logger.getLogger(FishnetImporter.class.getName());
+
+	/**
+	 * Number of rows stored per transaction, sent in several JDBC batches.
+	 */
+	private static final int ROWS_PER_TRANSACTION = 500;
+
+	/**
+	 * Maximum number of grid cells per duplicate query.
+	 */
+	private static final int MAX_CELLS = 1024;
+
+	/**
+	 * State of an imported fishnet.
+	 */
+	private static final int FISHNET_REPORTED_STATE = 1;
+
+	/**
+	 * Loading entity manager with unit name ghostNetFishing-persistence-unit.
+	 */
+	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit")
+	private EntityManager entityManager;
+
+	/**
+	 * Notifies caches about stored fishnets.
+	 */
+	@Inject
+	private Event<EntityChangedEvent> entityChanged;
+
+	@Inject
+	private Validator validator;
+
+	/**
+	 * Finds relevant fishnets near an imported row.
+	 */
+	@Inject
+	private FishnetProximityIndex proximityIndex;
+
+	@Resource
+	private SessionContext sessionContext;
+
+	/**
+	 * Imports a file in the background and deletes it afterwards.
+	 * @param file to import, UTF-8 encoded.
+	 * @param format of the file.
+	 * @param personId of the reporting person, used for rows without person, may be null.
+	 * @param job receiving progress and errors.
+	 */
+	@Asynchronous
+	@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+	public void run(Path file, FishnetImportParser.Format format, final Integer personId, final FishnetImportJob job) {
+
+		final FishnetImporter self = this.sessionContext.getBusinessObject(FishnetImporter.class);
+		final List<FishnetImportParser.Row> batch = new ArrayList<FishnetImportParser.Row>(ROWS_PER_TRANSACTION);
+		final Fishnet probe = new Fishnet();
+
+		try (InputStream in = new CountingInputStream(Files.newInputStream(file), job);
+				Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+
+			FishnetImportParser.parse(format, reader, row -> {
+				job.addRowRead();
+				if (row.getError() != null) {
+					job.reject(row.getNumber(), row.getError());
+					return;
+				}
+				probe.setSize(row.getSize());
+				probe.setLatitude(row.getLatitude());
+				probe.setLongitude(row.getLongitude());
+				Set<ConstraintViolation<Fishnet>> violations = this.validator.validate(probe);
+				if (!violations.isEmpty()) {
+					ConstraintViolation<Fishnet> violation = violations.iterator().next();
+					job.reject(row.getNumber(), violation.getPropertyPath() + " " + violation.getMessage());
+					return;
+				}
+				batch.add(row);
+				if (batch.size() == ROWS_PER_TRANSACTION) {
+					self.storeBatch(batch, personId, job);
+					batch.clear();
+				}
+			});
+			if (!batch.isEmpty()) {
+				self.storeBatch(batch, personId, job);
+			}
+			job.finish();
+		} catch (IOException | RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Import of " + job.getFileName() + " failed", e);
+			job.fail(e.getMessage());
+		} finally {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Deleting " + file + " failed", e);
+			}
+		}
+	}
+
+	/**
+	 * Stores the valid rows of a batch, which are neither duplicates nor reference unknown persons.
+	 * @param rows validated rows.
+	 * @param personId of the reporting person, used for rows without person, may be null.
+	 * @param job receiving progress and errors.
+	 */
+	@TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+	public void storeBatch(List<FishnetImportParser.Row> rows, Integer personId, FishnetImportJob job) {
+
+		Set<String> stored = loadKeys(rows);
+		Set<Integer> persons = loadPersons(rows);
+
+		List<FishnetReport> reports = new ArrayList<FishnetReport>(rows.size());
+		long duplicates = 0;
+		for (FishnetImportParser.Row row : rows) {
+			Integer person = row.getPersonId() == null ? personId : row.getPersonId();
+			if (row.getPersonId() != null && !persons.contains(row.getPersonId())) {
+				job.reject(row.getNumber(), "Person " + row.getPersonId() + " existiert nicht");
+			} else if (!stored.add(key(row.getLatitude(), row.getLongitude(), row.getSize()))
+					|| this.proximityIndex.findDuplicate(row.getLatitude(), row.getLongitude(), row.getSize()) != null
+					|| this.proximityIndex.isDuplicateOf(row.getLatitude(), row.getLongitude(), row.getSize(),
+							reports)) {
+				duplicates++;
+			} else {
+				reports.add(new FishnetReport(person, row.getSize(), row.getLatitude(), row.getLongitude()));
+			}
+		}
+
+		List<FishnetChangedEvent.Snapshot> snapshots = reports.isEmpty() ? new ArrayList<FishnetChangedEvent.Snapshot>()
+				: FishnetBatchInsert.insert(this.entityManager, reports, FISHNET_REPORTED_STATE);
+		for (FishnetChangedEvent.Snapshot snapshot : snapshots) {
+			this.entityChanged.fire(new FishnetChangedEvent(null, snapshot));
+		}
+		job.addImported(snapshots.size());
+		job.addDuplicates(duplicates);
+	}
+
+	/**
+	 * Loads the keys of the stored fishnets in the grid cells of the rows.
+	 * @return modifiable set of keys.
+	 */
+	private Set<String> loadKeys(List<FishnetImportParser.Row> rows) {
+
+		Set<Integer> cells = new HashSet<Integer>();
+		for (FishnetImportParser.Row row : rows) {
+			cells.add(GeoGrid.cellOf(row.getLatitude(), row.getLongitude()));
+		}
+		List<Integer> all = new ArrayList<Integer>(cells);
+		Set<String> keys = new HashSet<String>();
+		for (int from = 0; from < all.size(); from += MAX_CELLS) {
+			List<Object[]> stored = this.entityManager.createQuery(
+					"select f.latitude, f.longitude, f.size from Fishnet f where f.gridCell in :cells", Object[].class)
+					.setParameter("cells", all.subList(from, Math.min(from + MAX_CELLS, all.size())))
+					.getResultList();
+			for (Object[] fishnet : stored) {
+				keys.add(key((Double) fishnet[0], (Double) fishnet[1], (Double) fishnet[2]));
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Loads the ids of the existing persons referenced by the rows.
+	 */
+	private Set<Integer> loadPersons(List<FishnetImportParser.Row> rows) {
+
+		Set<Integer> ids = new HashSet<Integer>();
+		for (FishnetImportParser.Row row : rows) {
+			if (row.getPersonId() != null) {
+				ids.add(row.getPersonId());
+			}
+		}
+		if (ids.isEmpty()) {
+			return ids;
+		}
+		return new HashSet<Integer>(this.entityManager
+				.createQuery("select p.id from Person p where p.id in :ids", Integer.class)
+				.setParameter("ids", ids)
+				.getResultList());
+	}
+
+	private static String key(double latitude, double longitude, double size) {
+		return latitude + "/" + longitude + "/" + size;
+	}
+
+	/**
+	 * Counts the bytes read for the progress of the job.
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+
+		private final FishnetImportJob job;
+
+		CountingInputStream(InputStream in, FishnetImportJob job) {
+			super(in);
+			this.job = job;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read = super.read();
+			if (read >= 0) {
+				this.job.addBytesRead(1);
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0) {
+				this.job.addBytesRead(read);
+			}
+			return read;
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.el.ghostnetfishing.model.Fishnet;
+import org.el.ghostnetfishing.model.FishnetState;
+
+/**
+ * Read endpoint for the markers of the worldmap.
+ * <p/>
+ * Returns the fishnets relevant for recovery inside a bounding box as compact
+ * JSON, one array [id, latitude, longitude, state id] per marker. Clients
+ * revalidate with ETag or Last-Modified and get 304 Not Modified as long as
+ * no fishnet or fishnet state was written.
+ */
+
+@WebServlet("/api/markers")
+public class FishnetMarkerServlet extends HttpServlet {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Maximum number of markers in one response.
+	 */
+	private static final int MAX_MARKERS = 5000;
+
+	/**
+	 * Loading entity manager with unit name ghostNetFishing-persistence-unit.
+	 */
+	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit")
+	private EntityManager entityManager;
+
+	/**
+	 * Application wide cache of all fishnet states.
+	 */
+	@Inject
+	private FishnetStateCatalog catalog;
+
+	/**
+	 * Time of the last writes, used as validator.
+	 */
+	@Inject
+	private ModificationTracker modificationTracker;
+
+	/**
+	 * Writes the markers of the requested bounding box.
+	 * Parameters south, west, north and east are optional, without them the whole map is returned.
+	 */
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+		double[] box;
+		try {
+			box = parseBoundingBox(request);
+		} catch (NumberFormatException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "invalid bounding box");
+			return;
+		}
+
+		if (isNotModified(request, response, this.modificationTracker)) {
+			return;
+		}
+
+		List<Object[]> markers = fetchMarkers(box);
+
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		try (JsonGenerator generator = Json.createGenerator(response.getWriter())) {
+			generator.writeStartObject().writeStartArray("markers");
+			for (int i = 0; i < markers.size() && i < MAX_MARKERS; i++) {
+				Object[] marker = markers.get(i);
+				generator.writeStartArray()
+						.write((Integer) marker[0])
+						.write((Double) marker[1])
+						.write((Double) marker[2])
+						.write((Integer) marker[3])
+						.writeEnd();
+			}
+			generator.writeEnd().write("truncated", markers.size() > MAX_MARKERS).writeEnd();
+		}
+	}
+
+	/**
+	 * Reads id, coordinates and state id of the relevant fishnets, without loading entities.
+	 * @param box with south, west, north and east, or null for the whole map.
+	 * @return list of markers, at most one more than {@link #MAX_MARKERS}.
+	 */
+	private List<Object[]> fetchMarkers(double[] box) {
+
+		List<FishnetState> states = this.catalog.getAllRelevantForRecovery();
+		if (states.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
+		CriteriaQuery<Object[]> criteria = builder.createQuery(Object[].class);
+		Root<Fishnet> root = criteria.from(Fishnet.class);
+
+		List<Predicate> predicatesList = new ArrayList<Predicate>();
+		predicatesList.add(root.get("fishnetState").in(states));
+		if (box != null) {
+			Collections.addAll(predicatesList,
+					FishnetBean.getBoundingBoxPredicates(builder, root, box[0], box[1], box[2], box[3]));
+		}
+
+		criteria.multiselect(root.get("id"), root.get("latitude"), root.get("longitude"),
+				root.get("fishnetState").get("id"))
+				.where(predicatesList.toArray(new Predicate[predicatesList.size()]));
+		return this.entityManager.createQuery(criteria).setMaxResults(MAX_MARKERS + 1).getResultList();
+	}
+
+	/**
+	 * Sets the validators of the response and answers conditional requests.
+	 * The validators change with every write of fishnets or fishnet states.
+	 * @param request with optional If-None-Match or If-Modified-Since header.
+	 * @param response to set the headers on.
+	 * @param modificationTracker with the time of the last writes.
+	 * @return true, if 304 Not Modified was sent and nothing else has to be written.
+	 */
+	static boolean isNotModified(HttpServletRequest request, HttpServletResponse response,
+			ModificationTracker modificationTracker) {
+
+		long lastModified = modificationTracker.getLastModified(Fishnet.class, FishnetState.class);
+		String eTag = "W/\"" + Long.toHexString(lastModified) + "-"
+				+ Integer.toHexString(String.valueOf(request.getQueryString()).hashCode()) + "\"";
+		response.setHeader("ETag", eTag);
+		response.setDateHeader("Last-Modified", lastModified);
+		response.setHeader("Cache-Control", "public, max-age=0, must-revalidate");
+
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null ? ifNoneMatch.equals(eTag)
+				: request.getDateHeader("If-Modified-Since") >= lastModified / 1000 * 1000) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the bounding box parameters.
+	 * @param request with the parameters south, west, north and east.
+	 * @return array with south, west, north and east, or null if no parameter is setted.
+	 * @throws NumberFormatException if a parameter is missing or no number.
+	 */
+	static double[] parseBoundingBox(HttpServletRequest request) throws NumberFormatException {
+
+		String south = request.getParameter("south");
+		String west = request.getParameter("west");
+		String north = request.getParameter("north");
+		String east = request.getParameter("east");
+		if (south == null && west == null && north == null && east == null) {
+			return null;
+		}
+		if (south == null || west == null || north == null || east == null) {
+			throw new NumberFormatException("incomplete bounding box");
+		}
+		return new double[] { Double.parseDouble(south), Double.parseDouble(west),
+				Double.parseDouble(north), Double.parseDouble(east) };
+	}
+}
@@ -1,9 +1,13 @@
 package org.el.ghostnetfishing.view;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.ejb.Stateful;
+import javax.enterprise.event.Event;
 import javax.faces.application.FacesMessage;
 import javax.faces.context.FacesContext;
 import javax.faces.view.ViewScoped;
@@ -12,15 +16,15 @@ import javax.inject.Named;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
-import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaBuilder.In;
-import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
 import org.el.ghostnetfishing.model.Fishnet;
+import org.el.ghostnetfishing.model.FishnetRow;
 import org.el.ghostnetfishing.model.FishnetState;
+import org.el.ghostnetfishing.model.Person;
 import org.el.ghostnetfishing.model.PersonType;
 
 /**
@@ -34,14 +38,17 @@ import org.el.ghostnetfishing.model.PersonType;
 public class FishnetOverviewBean {
 
 	/**
-	 * Page counter for UI.
+	 * Read-only {@link org.el.ghostnetfishing.model.FishnetRow rows} of the fishnets on the page.
 	 */
-	private int page;
+	private List<FishnetRow> pageItems;
 	
 	/**
-	 * {@link org.el.ghostnetfishing.model.Fishnet fishnets} collection for fishnets. 
+	 * Optional viewport of the map, only used when all four sides are setted.
 	 */
-	private List<Fishnet> pageItems;
+	private Double south;
+	private Double west;
+	private Double north;
+	private Double east;
 	
 	/**
 	 * Used as search parameter in search view.
@@ -54,18 +61,20 @@ public class FishnetOverviewBean {
 	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit", type = PersistenceContextType.EXTENDED)
 	private EntityManager entityManager;
 
-	public int getPage() {
-		return this.page;
-	}
-
-	public void setPage(int page) {
-		this.page = page;
-	}
+	/**
+	 * Search state of the bean.
+	 */
+	@Inject
+	private SearchPages pages;
 
 	public int getPageSize() {
 		return 10;
 	}
 
+	public SearchPages getPages() {
+		return this.pages;
+	}
+
 	public Fishnet getExample() {
 		return this.example;
 	}
@@ -74,25 +83,66 @@ public class FishnetOverviewBean {
 		this.example = example;
 	}
 
-	public List<Fishnet> getPageItems() {
+	public List<FishnetRow> getPageItems() {
 		return pageItems;
 	}
 
-	public void setPageItems(List<Fishnet> pageItems) {
+	public void setPageItems(List<FishnetRow> pageItems) {
 		this.pageItems = pageItems;
 	}
 
+	public Double getSouth() {
+		return this.south;
+	}
+
+	public void setSouth(Double south) {
+		resetCursorsOnChange(this.south, south);
+		this.south = south;
+	}
+
+	public Double getWest() {
+		return this.west;
+	}
+
+	public void setWest(Double west) {
+		resetCursorsOnChange(this.west, west);
+		this.west = west;
+	}
+
+	public Double getNorth() {
+		return this.north;
+	}
+
+	public void setNorth(Double north) {
+		resetCursorsOnChange(this.north, north);
+		this.north = north;
+	}
+
+	public Double getEast() {
+		return this.east;
+	}
+
+	public void setEast(Double east) {
+		resetCursorsOnChange(this.east, east);
+		this.east = east;
+	}
+
 	/**
-	 * Fetching all relevant fishnet states
-	 * @param fishnetState of fishnet
+	 * Fetching all relevant fishnet states from the precomputed transition matrix.
+	 * The returned list is shared and sorted, it must not be changed.
+	 * @param row of fishnet
 	 * @param type of the person
-	 * @return list of FishnetState, if available, if not, returns null.
+	 * @return list of FishnetState, empty for a fishnet without state, null without person type.
 	 */
-	public List<FishnetState> fetchAllPossibleDestinationStates(FishnetState fishnetState, PersonType type){
+	public List<FishnetState> fetchAllPossibleDestinationStates(FishnetRow row, PersonType type){
 		
 		if(type!= null){
+			FishnetState state = this.catalog.findById(row.getStateId());
+			if(state == null){
+				return Collections.emptyList();
+			}
 			try {
-				return FishnetStateBean.fetchAllPossibleDestinationStates(this.entityManager, fishnetState, type);
+				return this.catalog.getPossibleDestinationStates(state, type);
 			} catch (IllegalArgumentException e) {
 				FacesContext facesContext = FacesContext.getCurrentInstance();
 				FacesMessage facesMessage = new FacesMessage("Benutzer nicht ausgewählt!");
@@ -107,7 +157,7 @@ public class FishnetOverviewBean {
 	 * @return null.
 	 */
 	public String search() {
-		this.page = 0;
+		this.pages.reset();
 		return null;
 	}
 
@@ -117,49 +167,91 @@ public class FishnetOverviewBean {
 	@Inject 
 	private UserManagementBean userManagementBean;
 	
+	/**
+	 * Application wide cache of all fishnet states.
+	 */
+	@Inject
+	private FishnetStateCatalog catalog;
+	
+	/**
+	 * Notifies caches about written Fishnet entities.
+	 */
+	@Inject
+	private Event<EntityChangedEvent> entityChanged;
+	
 	/**
 	 * Accepting changes on the page.
 	 * If FishnetState is changed, updates the database with new dataset.
+	 * A fishnet is only changed, if it still has the state and version shown on the page.
+	 * Fishnets changed meanwhile by someone else are reported as conflicts and left unchanged.
 	 */
+	@Monitored
 	public void accept(){
 		
-		for(Fishnet fishnet : this.pageItems){
+		// Collects the transitions from the displayed state to the new state
+		List<FishnetStateTransitions.Transition> transitions = new ArrayList<FishnetStateTransitions.Transition>();
+		Map<Integer, FishnetRow> rows = new HashMap<Integer, FishnetRow>();
+		Person recoverer = userManagementBean.getUser();
+		Integer recovererId = recoverer == null ? null : recoverer.getId();
+		FacesContext facesContext = FacesContext.getCurrentInstance();
+		for(FishnetRow fishnet : this.pageItems){
 			if(fishnet.getNewFishnetState() != null){
 				
-				// Set user for recover
-				fishnet.setPersonByRecoveryMessagingPersonId(userManagementBean.getUser());
-				
-				// Updating new status for fishnet
-				fishnet.setFishnetState(fishnet.getNewFishnetState());
-				
-				// Updating the database
-				this.entityManager.merge(fishnet);
+				// only transitions of the state machine from the displayed state are written
+				List<FishnetState> allowed = recoverer == null ? null
+						: fetchAllPossibleDestinationStates(fishnet, recoverer.getPersonType());
+				if(allowed == null || !allowed.contains(fishnet.getNewFishnetState())){
+					facesContext.addMessage(null, new FacesMessage("Statuswechsel für Fischnetz "
+							+ fishnet.getId() + " ist nicht erlaubt."));
+					continue;
+				}
+				transitions.add(FishnetStateTransitions.Transition.of(fishnet, recovererId));
+				rows.put(fishnet.getId(), fishnet);
 			}
 		}
+		if(transitions.isEmpty()){
+			return;
+		}
+		
+		// Updating the database, setting the new status and the user for recover
+		List<FishnetStateTransitions.Transition> conflicts = FishnetStateTransitions.compareAndSet(this.entityManager,
+				transitions);
+		
+		for(FishnetStateTransitions.Transition conflict : conflicts){
+			rows.remove(conflict.getFishnetId());
+			facesContext.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_WARN,
+					"Fischnetz " + conflict.getFishnetId() + " wurde inzwischen geändert und nicht übernommen.", null));
+		}
+		for(FishnetRow fishnet : rows.values()){
+			FishnetChangedEvent.Snapshot before = FishnetChangedEvent.Snapshot.of(fishnet);
+			this.entityChanged.fire(new FishnetChangedEvent(before,
+					before.withState(fishnet.getNewFishnetState().getId(), recovererId)));
+		}
+		
+		// The rows are stale after the update, the next paginate reads them again
+		this.entityManager.clear();
 	}
 
 	/**
 	 * When the user paginates through the page, it retrieves data for display a list of items on the page.
+	 * The page is read with a seek on the fishnet id, so pages reached by the pager links cost the same.
 	 */
+	@Monitored
 	public void paginate() {
 
-		// Restricts query results based on specific conditions 
 		CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
-		
-		// Creates SQL statement with condition of criteria query
-		CriteriaQuery<Fishnet> criteria = builder.createQuery(Fishnet.class);
-		
-		// references entities of the fishnet 
-		Root<Fishnet> root = criteria.from(Fishnet.class);
+		this.pageItems = this.pages.paginate(this.entityManager, null, Fishnet.class, FishnetRow.class,
+				root -> FishnetBean.getRowSelection(builder, root), this::getSearchPredicates,
+				row -> new KeysetPaginator.Cursor(null, row.getId()), getPageSize());
+	}
 
-		// building SQL statement
-		TypedQuery<Fishnet> query = this.entityManager.createQuery(
-				
-				// SQL statement from search predicates as condition
-				criteria.select(root).where(getSearchPredicates(root)));
-		
-		// Runs SQL select statement and allocates objects from getResultList to the pageItems
-		this.pageItems = query.getResultList();
+	/**
+	 * Drops the known cursors, when a viewport side changes.
+	 */
+	private void resetCursorsOnChange(Double oldValue, Double newValue) {
+		if (oldValue == null ? newValue != null : !oldValue.equals(newValue)) {
+			this.pages.forgetCursors();
+		}
 	}
 
 	/**
@@ -173,7 +265,7 @@ public class FishnetOverviewBean {
 		CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
 		List<Predicate> predicatesList = new ArrayList<Predicate>();
 		// initialize a list with all fishnet states which are relevant for recover
-		List<FishnetState> states = FishnetStateBean.getAllRelevantForRecovery(this.entityManager);
+		List<FishnetState> states = this.catalog.getAllRelevantForRecovery();
 
 		// Creates a filter for fishnetState
 		In<FishnetState> inClause = builder.in(root.get("fishnetState"));
@@ -182,6 +274,12 @@ public class FishnetOverviewBean {
 		}
 		
 		predicatesList.add(inClause);
+		
+		// Restricts to the viewport of the map
+		if (this.south != null && this.west != null && this.north != null && this.east != null) {
+			Collections.addAll(predicatesList, FishnetBean.getBoundingBoxPredicates(builder, root,
+					this.south, this.west, this.north, this.east));
+		}
 		return predicatesList.toArray(new Predicate[predicatesList.size()]);
 	}
 }
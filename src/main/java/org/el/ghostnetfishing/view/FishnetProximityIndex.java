@@ -0,0 +1,321 @@
+package org.el.ghostnetfishing.view;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Resource;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.el.ghostnetfishing.model.Fishnet;
+import org.el.ghostnetfishing.model.FishnetReport;
+import org.el.ghostnetfishing.model.FishnetState;
+import org.el.ghostnetfishing.model.GeoGrid;
+
+/**
+ * FishnetProximityIndex finds fishnets relevant for recovery near a coordinate, to detect duplicate reports.
+ * <p/>
+ * The relevant fishnets are kept in memory on a fine grid, whose cells are
+ * as large as the duplicate radius. A lookup only visits the cells around
+ * the coordinate, so it doesn't depend on the number of fishnets. Like the
+ * {@link FishnetStateCatalog}, the grid is built on first use and published
+ * through a volatile field, lookups run concurrently under a read lock.
+ * Only applying a {@link FishnetChangedEvent} takes the write lock.
+ */
+
+@Singleton
+@Lock(LockType.READ)
+public class FishnetProximityIndex {
+
+	/**
+	 * Number of fishnets read per query while building.
+	 */
+	private static final int BUILD_CHUNK_SIZE = 10000;
+
+	/**
+	 * Smallest edge length of a cell in degrees, about 100 meters.
+	 */
+	private static final double MIN_CELL_SIZE = 0.001;
+
+	/**
+	 * Distance in meters, within which a reported fishnet is a duplicate of a relevant one; 0 disables the detection.
+	 * Configured by the env-entry duplicates/radiusMeters in web.xml.
+	 */
+	@Resource(name = "duplicates/radiusMeters")
+	private Integer radiusMeters = 200;
+
+	/**
+	 * Allowed difference of the sizes in percent of the larger size.
+	 * Configured by the env-entry duplicates/sizeTolerancePercent in web.xml.
+	 */
+	@Resource(name = "duplicates/sizeTolerancePercent")
+	private Integer sizeTolerancePercent = 25;
+
+	/**
+	 * Loading entity manager with unit name ghostNetFishing-persistence-unit.
+	 */
+	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit")
+	private EntityManager entityManager;
+
+	/**
+	 * Application wide cache of all fishnet states.
+	 */
+	@Inject
+	private FishnetStateCatalog catalog;
+
+	/**
+	 * Grid of the relevant fishnets.
+	 */
+	private final LazySnapshot<Grid> grid = new LazySnapshot<Grid>(this::build);
+
+	/**
+	 * Finds the nearest relevant fishnet, of which a report would be a duplicate.
+	 * @param latitude of the report.
+	 * @param longitude of the report.
+	 * @param size of the report.
+	 * @return id of the nearest fishnet within the radius and size tolerance, or null if there is none.
+	 */
+	public Integer findDuplicate(double latitude, double longitude, double size) {
+
+		if (this.radiusMeters <= 0) {
+			return null;
+		}
+		Grid grid = this.grid.get();
+
+		double radiusKm = this.radiusMeters / 1000.0;
+		double[] box = GeoGrid.boundingBox(latitude, longitude, radiusKm);
+		int columnsPerRow = grid.columns();
+		int firstColumn = grid.column(box[1]);
+		int lastColumn = grid.column(box[3]);
+		int columns = lastColumn >= firstColumn ? lastColumn - firstColumn + 1
+				: columnsPerRow - firstColumn + lastColumn + 1;
+
+		int firstRow = grid.row(box[0]);
+		int lastRow = grid.row(box[2]);
+		List<List<Entry>> candidates = new ArrayList<List<Entry>>();
+		if ((long) columns * (lastRow - firstRow + 1) < grid.cells.size()) {
+
+			// the usual small box looks up its cells
+			for (int row = firstRow; row <= lastRow; row++) {
+				for (int i = 0; i < columns; i++) {
+					List<Entry> entries = grid.cells.get(Grid.key((firstColumn + i) % columnsPerRow, row));
+					if (entries != null) {
+						candidates.add(entries);
+					}
+				}
+			}
+		} else {
+
+			// boxes at the poles cover all longitudes, all non empty cells are checked
+			candidates.addAll(grid.cells.values());
+		}
+
+		Entry nearest = null;
+		double nearestKm = radiusKm;
+		for (List<Entry> entries : candidates) {
+			for (Entry entry : entries) {
+				if (!isSimilarSize(size, entry.size)) {
+					continue;
+				}
+				double km = GeoGrid.distanceKm(latitude, longitude, entry.latitude, entry.longitude);
+				if (km <= nearestKm) {
+					nearest = entry;
+					nearestKm = km;
+				}
+			}
+		}
+		return nearest == null ? null : nearest.id;
+	}
+
+	/**
+	 * Checks a report against reports accepted in the same batch, which the grid doesn't know yet.
+	 * @param latitude of the report.
+	 * @param longitude of the report.
+	 * @param size of the report.
+	 * @param accepted reports of the batch.
+	 * @return true, if an accepted report is within the radius and size tolerance.
+	 */
+	public boolean isDuplicateOf(double latitude, double longitude, double size, List<FishnetReport> accepted) {
+
+		if (this.radiusMeters <= 0) {
+			return false;
+		}
+		double radiusKm = this.radiusMeters / 1000.0;
+		for (FishnetReport report : accepted) {
+			if (isSimilarSize(size, report.getSize())
+					&& GeoGrid.distanceKm(latitude, longitude, report.getLatitude(), report.getLongitude()) <= radiusKm) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int getRadiusMeters() {
+		return this.radiusMeters;
+	}
+
+	/**
+	 * Applies the changes of fishnets after the transaction succeeded.
+	 * @param event about the written entities.
+	 */
+	@Lock(LockType.WRITE)
+	public void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangedEvent event) {
+
+		Grid current = this.grid.peek();
+		if (current == null) {
+			return;
+		}
+		if (event instanceof FishnetChangedEvent) {
+			FishnetChangedEvent change = (FishnetChangedEvent) event;
+			if (isRelevant(change.getBefore())) {
+				current.remove(change.getBefore());
+			}
+			if (isRelevant(change.getAfter())) {
+				FishnetChangedEvent.Snapshot after = change.getAfter();
+				current.add(new Entry(after.getId(), after.getLatitude(), after.getLongitude(), after.getSize()));
+			}
+		} else if (event instanceof FishnetsDetachedEvent) {
+
+			// positions and states of the fishnets are unchanged
+		} else if (event.concerns(Fishnet.class) || event.concerns(FishnetState.class)) {
+			this.grid.markStale();
+		}
+	}
+
+	/**
+	 * Builds the grid from the database, reading the relevant fishnets in chunks ordered by id.
+	 */
+	private Grid build() {
+
+		Grid built = new Grid(Math.max(MIN_CELL_SIZE,
+				Math.toDegrees(this.radiusMeters / 1000.0 / GeoGrid.EARTH_RADIUS_KM)));
+
+		List<FishnetState> states = this.catalog.getAllRelevantForRecovery();
+		int after = 0;
+		while (!states.isEmpty()) {
+			List<Object[]> rows = this.entityManager.createQuery(
+					"select f.id, f.latitude, f.longitude, f.size from Fishnet f"
+					+ " where f.fishnetState in :states and f.id > :after order by f.id", Object[].class)
+					.setParameter("states", states)
+					.setParameter("after", after)
+					.setMaxResults(BUILD_CHUNK_SIZE)
+					.getResultList();
+			for (Object[] row : rows) {
+				built.add(new Entry((Integer) row[0], (Double) row[1], (Double) row[2], (Double) row[3]));
+			}
+			if (rows.size() < BUILD_CHUNK_SIZE) {
+				break;
+			}
+			after = (Integer) rows.get(rows.size() - 1)[0];
+		}
+		return built;
+	}
+
+	private boolean isRelevant(FishnetChangedEvent.Snapshot snapshot) {
+
+		if (snapshot == null) {
+			return false;
+		}
+		FishnetState state = this.catalog.findById(snapshot.getStateId());
+		return state != null && state.isRelevantForRecoveryFlag();
+	}
+
+	private boolean isSimilarSize(double size, double other) {
+		return Math.abs(size - other) <= Math.max(size, other) * this.sizeTolerancePercent / 100.0;
+	}
+
+	/**
+	 * Relevant fishnets per cell, changed only under the write lock.
+	 */
+	private static final class Grid {
+
+		/**
+		 * Fishnets per cell, keyed by column and row.
+		 */
+		private final Map<Long, List<Entry>> cells = new HashMap<Long, List<Entry>>();
+
+		/**
+		 * Edge length of a cell in degrees.
+		 */
+		private final double cellSize;
+
+		Grid(double cellSize) {
+			this.cellSize = cellSize;
+		}
+
+		void add(Entry entry) {
+
+			Long key = key(column(entry.longitude), row(entry.latitude));
+			List<Entry> entries = this.cells.get(key);
+			if (entries == null) {
+				entries = new ArrayList<Entry>(2);
+				this.cells.put(key, entries);
+			}
+			entries.add(entry);
+		}
+
+		void remove(FishnetChangedEvent.Snapshot snapshot) {
+
+			Long key = key(column(snapshot.getLongitude()), row(snapshot.getLatitude()));
+			List<Entry> entries = this.cells.get(key);
+			if (entries == null) {
+				return;
+			}
+			for (int i = 0; i < entries.size(); i++) {
+				if (entries.get(i).id == snapshot.getId()) {
+					entries.remove(i);
+					break;
+				}
+			}
+			if (entries.isEmpty()) {
+				this.cells.remove(key);
+			}
+		}
+
+		int columns() {
+			return (int) Math.ceil(360 / this.cellSize);
+		}
+
+		int column(double longitude) {
+			return Math.max(0, Math.min(columns() - 1, (int) Math.floor((longitude + 180) / this.cellSize)));
+		}
+
+		int row(double latitude) {
+			int rows = (int) Math.ceil(180 / this.cellSize);
+			return Math.max(0, Math.min(rows - 1, (int) Math.floor((latitude + 90) / this.cellSize)));
+		}
+
+		static Long key(int column, int row) {
+			return ((long) column << 32) | row;
+		}
+	}
+
+	/**
+	 * Position and size of one relevant fishnet.
+	 */
+	private static final class Entry {
+
+		private final int id;
+
+		private final double latitude;
+
+		private final double longitude;
+
+		private final double size;
+
+		Entry(int id, double latitude, double longitude, double size) {
+			this.id = id;
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.size = size;
+		}
+	}
+}
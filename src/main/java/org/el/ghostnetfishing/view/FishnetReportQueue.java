@@ -0,0 +1,448 @@
+package org.el.ghostnetfishing.view;
+
+import java.sql.SQLDataException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Schedule;
+import javax.ejb.SessionContext;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.el.ghostnetfishing.model.FishnetReport;
+
+/**
+ * FishnetReportQueue decouples reporting fishnets from storing them.
+ * <p/>
+ * A report is validated and written to the queue table within the request,
+ * which costs one small INSERT. A timer takes the reports out of the queue
+ * in order and stores them as fishnets with JDBC batches, one transaction
+ * per batch. Reports left in the table are stored after a restart. After
+ * {@link #MAX_BATCH_FAILURES} failures in a row the next batch is stored
+ * report by report. A report failing alone with an error of its data is
+ * kept in the table as dead letter, so one bad report can't block the
+ * queue; other errors, e.g. lock timeouts, are retried with the next
+ * timer. Dead letters are queued again from the statistics page. Depth, lag and
+ * throughput of the queue are exposed for the statistics page.
+ */
+
+@Named
+@Singleton
+@Lock(LockType.READ)
+public class FishnetReportQueue {
+
+	private static final Logger LOGGER = Logger.getLogger(FishnetReportQueue.class.getName());
+
+	/**
+	 * Maximum number of reports stored per transaction, sent in several JDBC batches.
+	 */
+	private static final int ROWS_PER_TRANSACTION = 500;
+
+	/**
+	 * State of a stored report.
+	 */
+	private static final int FISHNET_REPORTED_STATE = 1;
+
+	/**
+	 * Number of failed batches in a row, before the reports are stored one by one.
+	 */
+	private static final int MAX_BATCH_FAILURES = 3;
+
+	/**
+	 * Loading entity manager with unit name ghostNetFishing-persistence-unit.
+	 */
+	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit")
+	private EntityManager entityManager;
+
+	/**
+	 * Notifies caches about stored fishnets.
+	 */
+	@Inject
+	private Event<EntityChangedEvent> entityChanged;
+
+	/**
+	 * Notifies the queue itself about enqueued reports, once they are committed.
+	 */
+	@Inject
+	private Event<Enqueued> enqueuedEvent;
+
+	/**
+	 * Finds relevant fishnets near a queued report.
+	 */
+	@Inject
+	private FishnetProximityIndex proximityIndex;
+
+	@Resource
+	private SessionContext sessionContext;
+
+	/**
+	 * When setted, a timer is storing reports.
+	 */
+	private final AtomicBoolean draining = new AtomicBoolean();
+
+	/**
+	 * Number of reports in the queue, -1 until it is counted.
+	 */
+	private final AtomicLong depth = new AtomicLong(-1);
+
+	/**
+	 * Receive time of the oldest report in the queue in milliseconds, 0 if the queue is empty.
+	 */
+	private final AtomicLong oldestReceived = new AtomicLong();
+
+	private final AtomicLong enqueued = new AtomicLong();
+
+	private final AtomicLong stored = new AtomicLong();
+
+	private final AtomicLong batches = new AtomicLong();
+
+	private final AtomicLong failures = new AtomicLong();
+
+	/**
+	 * Number of failed batches since the last stored one.
+	 */
+	private final AtomicInteger batchFailures = new AtomicInteger();
+
+	/**
+	 * Number of reports given up as dead letters, -1 until it is counted.
+	 */
+	private final AtomicLong deadLetters = new AtomicLong(-1);
+
+	/**
+	 * Number of reports dropped as duplicates of a fishnet stored meanwhile.
+	 */
+	private final AtomicLong duplicates = new AtomicLong();
+
+	/**
+	 * Duration of the last batch in milliseconds.
+	 */
+	private volatile long lastBatchMillis;
+
+	/**
+	 * Writes a report to the queue, within the transaction of the caller.
+	 * The constraints of the report are validated on persist.
+	 * @param report of a fishnet.
+	 */
+	public void enqueue(FishnetReport report) {
+
+		this.entityManager.persist(report);
+		this.enqueuedEvent.fire(new Enqueued(report.getReceived().getTime()));
+	}
+
+	/**
+	 * Counts an enqueued report after the transaction of the caller succeeded.
+	 * Reports of a rolled back transaction are not counted.
+	 * @param event about the enqueued report.
+	 */
+	public void onEnqueued(@Observes(during = TransactionPhase.AFTER_SUCCESS) Enqueued event) {
+
+		this.enqueued.incrementAndGet();
+		if (this.depth.get() >= 0) {
+			this.depth.incrementAndGet();
+		}
+		this.oldestReceived.compareAndSet(0, event.received);
+	}
+
+	/**
+	 * Stores the queued reports every few seconds, until the queue is empty.
+	 */
+	@Schedule(hour = "*", minute = "*", second = "*/5", persistent = false)
+	@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+	public void drain() {
+
+		if (!this.draining.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			FishnetReportQueue self = this.sessionContext.getBusinessObject(FishnetReportQueue.class);
+			int count;
+			do {
+				long start = System.currentTimeMillis();
+				count = this.batchFailures.get() < MAX_BATCH_FAILURES ? self.storeBatch() : storeSingly(self);
+				this.batchFailures.set(0);
+				if (count > 0) {
+					this.batches.incrementAndGet();
+					this.lastBatchMillis = System.currentTimeMillis() - start;
+				}
+			} while (count == ROWS_PER_TRANSACTION);
+			self.refreshMetrics();
+		} catch (RuntimeException e) {
+			// the batch stays in the queue and is tried again with the next timer
+			this.failures.incrementAndGet();
+			this.batchFailures.incrementAndGet();
+			LOGGER.log(Level.WARNING, "Storing queued fishnet reports failed", e);
+		} finally {
+			this.draining.set(false);
+		}
+	}
+
+	/**
+	 * Stores the oldest reports of the queue as fishnets and removes them from the queue.
+	 * Reports of a fishnet, that is relevant for recovery and near by, are dropped as duplicates.
+	 * @return number of reports taken from the queue.
+	 */
+	@TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+	public int storeBatch() {
+
+		return store(this.entityManager.createQuery(
+				"select r from FishnetReport r where r.failed is null order by r.id", FishnetReport.class)
+				.setMaxResults(ROWS_PER_TRANSACTION)
+				.getResultList());
+	}
+
+	/**
+	 * Stores one waiting report as fishnet and removes it from the queue.
+	 * @param id of the report.
+	 * @return number of reports taken from the queue.
+	 */
+	@TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+	public int storeReport(long id) {
+
+		FishnetReport report = this.entityManager.find(FishnetReport.class, id);
+		if (report == null || report.getFailed() != null) {
+			return 0;
+		}
+		return store(Collections.singletonList(report));
+	}
+
+	/**
+	 * Keeps a report, that failed to be stored alone, as dead letter in the queue table.
+	 * @param id of the report.
+	 */
+	@TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+	public void deadLetter(long id) {
+
+		this.entityManager.createQuery("update FishnetReport r set r.failed = :now where r.id = :id")
+				.setParameter("now", new Date())
+				.setParameter("id", id)
+				.executeUpdate();
+	}
+
+	/**
+	 * Queues all dead letters again, e.g. after the cause of their failure was fixed.
+	 * @return null, the page is shown again.
+	 */
+	public String requeueDeadLetters() {
+
+		int requeued = this.entityManager.createQuery("update FishnetReport r set r.failed = null where r.failed is not null")
+				.executeUpdate();
+		LOGGER.info("Queued " + requeued + " dead fishnet reports again");
+		this.deadLetters.set(-1);
+		this.depth.set(-1);
+		return null;
+	}
+
+	/**
+	 * Stores the oldest waiting reports one by one, each in its own transaction.
+	 * Reports failing alone with an error of their data become dead letters,
+	 * other errors abort, the reports are tried again with the next timer.
+	 * @param self business object of this bean.
+	 * @return number of reports taken from the queue.
+	 */
+	private int storeSingly(FishnetReportQueue self) {
+
+		List<Long> ids = this.entityManager.createQuery(
+				"select r.id from FishnetReport r where r.failed is null order by r.id", Long.class)
+				.setMaxResults(ROWS_PER_TRANSACTION)
+				.getResultList();
+		for (Long id : ids) {
+			try {
+				self.storeReport(id);
+			} catch (RuntimeException e) {
+				if (!isDataError(e)) {
+					throw e;
+				}
+				self.deadLetter(id);
+				if (this.deadLetters.get() >= 0) {
+					this.deadLetters.incrementAndGet();
+				}
+				LOGGER.log(Level.WARNING, "Queued fishnet report " + id + " failed alone and is kept as dead letter", e);
+			}
+		}
+		return ids.size();
+	}
+
+	/**
+	 * Checks, if storing failed because of the data, so that it would fail again.
+	 * @param e thrown by storing a single report.
+	 * @return true for violated constraints and invalid values, false e.g. for lock timeouts or lost connections.
+	 */
+	private static boolean isDataError(Throwable e) {
+
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SQLIntegrityConstraintViolationException || cause instanceof SQLDataException
+					|| cause instanceof javax.validation.ConstraintViolationException
+					|| cause instanceof org.hibernate.exception.ConstraintViolationException
+					|| cause instanceof org.hibernate.exception.DataException) {
+				return true;
+			}
+			if (cause.getCause() == cause) {
+				break;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Stores reports as fishnets and removes them from the queue, within the transaction of the caller.
+	 * @param reports managed reports, in the order of the queue.
+	 * @return number of reports taken from the queue.
+	 */
+	private int store(List<FishnetReport> reports) {
+
+		if (reports.isEmpty()) {
+			return 0;
+		}
+
+		// persons deleted since the report was queued are left out
+		Set<Integer> personIds = new HashSet<Integer>();
+		List<Long> ids = new ArrayList<Long>(reports.size());
+		for (FishnetReport report : reports) {
+			if (report.getSalvagingPersonId() != null) {
+				personIds.add(report.getSalvagingPersonId());
+			}
+			ids.add(report.getId());
+		}
+		Set<Integer> existing = personIds.isEmpty() ? personIds : new HashSet<Integer>(this.entityManager
+				.createQuery("select p.id from Person p where p.id in :ids", Integer.class)
+				.setParameter("ids", personIds)
+				.getResultList());
+		List<FishnetReport> unique = new ArrayList<FishnetReport>(reports.size());
+		for (FishnetReport report : reports) {
+			if (report.getSalvagingPersonId() != null && !existing.contains(report.getSalvagingPersonId())) {
+				report.setSalvagingPersonId(null);
+			}
+			this.entityManager.detach(report);
+
+			// the same net may have been stored since the report was queued, or be reported twice in the batch
+			if (this.proximityIndex.findDuplicate(report.getLatitude(), report.getLongitude(),
+					report.getSize()) == null
+					&& !this.proximityIndex.isDuplicateOf(report.getLatitude(), report.getLongitude(),
+							report.getSize(), unique)) {
+				unique.add(report);
+			}
+		}
+		this.duplicates.addAndGet(reports.size() - unique.size());
+
+		List<FishnetChangedEvent.Snapshot> snapshots = FishnetBatchInsert.insert(this.entityManager, unique,
+				FISHNET_REPORTED_STATE);
+		this.entityManager.createQuery("delete from FishnetReport r where r.id in :ids")
+				.setParameter("ids", ids)
+				.executeUpdate();
+
+		for (FishnetChangedEvent.Snapshot snapshot : snapshots) {
+			this.entityChanged.fire(new FishnetChangedEvent(null, snapshot));
+		}
+		this.stored.addAndGet(snapshots.size());
+		return reports.size();
+	}
+
+	/**
+	 * Counts the queue and reads the receive time of its oldest report.
+	 */
+	@TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+	public void refreshMetrics() {
+
+		Object[] row = this.entityManager.createQuery(
+				"select count(r), min(r.received) from FishnetReport r where r.failed is null", Object[].class)
+				.getSingleResult();
+		this.depth.set((Long) row[0]);
+		this.oldestReceived.set(row[1] == null ? 0 : ((Date) row[1]).getTime());
+		this.deadLetters.set(this.entityManager.createQuery(
+				"select count(r) from FishnetReport r where r.failed is not null", Long.class)
+				.getSingleResult());
+	}
+
+	/**
+	 * Returns the number of reports waiting in the queue.
+	 * @return depth, counted on the first call.
+	 */
+	public long getDepth() {
+
+		if (this.depth.get() < 0) {
+			this.sessionContext.getBusinessObject(FishnetReportQueue.class).refreshMetrics();
+		}
+		return this.depth.get();
+	}
+
+	/**
+	 * Returns how long the oldest report has been waiting.
+	 * @return lag in milliseconds, 0 if the queue is empty.
+	 */
+	public long getLagMillis() {
+		long oldest = this.oldestReceived.get();
+		return oldest == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest);
+	}
+
+	public long getEnqueued() {
+		return this.enqueued.get();
+	}
+
+	public long getStored() {
+		return this.stored.get();
+	}
+
+	public long getBatches() {
+		return this.batches.get();
+	}
+
+	public long getFailures() {
+		return this.failures.get();
+	}
+
+	/**
+	 * Returns the number of reports given up as dead letters.
+	 * @return dead letters, counted on the first call.
+	 */
+	public long getDeadLetters() {
+
+		if (this.deadLetters.get() < 0) {
+			this.sessionContext.getBusinessObject(FishnetReportQueue.class).refreshMetrics();
+		}
+		return this.deadLetters.get();
+	}
+
+	public long getDuplicates() {
+		return this.duplicates.get();
+	}
+
+	public long getLastBatchMillis() {
+		return this.lastBatchMillis;
+	}
+
+	/**
+	 * CDI event of a report written to the queue.
+	 */
+	public static final class Enqueued {
+
+		/**
+		 * Receive time of the report in milliseconds.
+		 */
+		private final long received;
+
+		Enqueued(long received) {
+			this.received = received;
+		}
+	}
+}
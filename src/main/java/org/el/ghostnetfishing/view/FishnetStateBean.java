@@ -4,13 +4,11 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.annotation.Resource;
-import javax.ejb.SessionContext;
 import javax.ejb.Stateful;
 import javax.enterprise.context.Conversation;
 import javax.enterprise.context.ConversationScoped;
+import javax.enterprise.event.Event;
 import javax.faces.application.FacesMessage;
-import javax.faces.component.UIComponent;
 import javax.faces.context.FacesContext;
 import javax.faces.convert.Converter;
 import javax.inject.Inject;
@@ -18,7 +16,6 @@ import javax.inject.Named;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
-import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
@@ -26,9 +23,6 @@ import javax.persistence.criteria.Root;
 
 import org.el.ghostnetfishing.model.Fishnet;
 import org.el.ghostnetfishing.model.FishnetState;
-import org.el.ghostnetfishing.model.PersonType;
-
-import java.util.Iterator;
 
 /**
  * Backing bean for FishnetState entities.
@@ -110,6 +104,24 @@ public class FishnetStateBean implements Serializable {
 	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit", type = PersistenceContextType.EXTENDED)
 	private EntityManager entityManager;
 
+	/**
+	 * Search state of the bean.
+	 */
+	@Inject
+	private SearchPages pages;
+
+	/**
+	 * Application wide cache of all fishnet states.
+	 */
+	@Inject
+	private FishnetStateCatalog catalog;
+
+	/**
+	 * Notifies caches about written FishnetState entities.
+	 */
+	@Inject
+	private Event<EntityChangedEvent> entityChanged;
+
 	/**
 	 * Creates a new session for conversation.
 	 * @return redirect to FishnetState create mask.
@@ -136,6 +148,8 @@ public class FishnetStateBean implements Serializable {
 			this.conversation.setTimeout(1800000L);
 		}
 
+		this.pages.enforceLimit(this.entityManager);
+
 		if (this.id == null) {
 			this.fishnetState = this.example;
 		} else {
@@ -158,15 +172,18 @@ public class FishnetStateBean implements Serializable {
 	 * if exists do an update on the exists entity.
 	 * @return a redirecting path or null on error.
 	 */
+	@Monitored
 	public String update() {
 		this.conversation.end();
 
 		try {
 			if (this.id == null) {
 				this.entityManager.persist(this.fishnetState);
+				this.entityChanged.fire(new EntityChangedEvent(FishnetState.class));
 				return "search?faces-redirect=true";
 			} else {
 				this.entityManager.merge(this.fishnetState);
+				this.entityChanged.fire(new EntityChangedEvent(FishnetState.class));
 				return "view?faces-redirect=true&id="
 				+ this.fishnetState.getId();
 			}
@@ -181,21 +198,16 @@ public class FishnetStateBean implements Serializable {
 	 * Deletes current FishnetState object and references to relevant objects.
 	 * @return a redirecting path or null on error.
 	 */
+	@Monitored
 	public String delete() {
 		this.conversation.end();
 
 		try {
-			FishnetState deletableEntity = findById(getId());
-			Iterator<Fishnet> iterFishnets = deletableEntity.getFishnets()
-					.iterator();
-			for (; iterFishnets.hasNext();) {
-				Fishnet nextInFishnets = iterFishnets.next();
-				nextInFishnets.setFishnetState(null);
-				iterFishnets.remove();
-				this.entityManager.merge(nextInFishnets);
+			// fishnets of the state are kept without state
+			if (EntityDeletes.deleteFishnetState(this.entityManager, getId())) {
+				this.entityChanged.fire(new EntityChangedEvent(FishnetState.class));
+				this.entityChanged.fire(new EntityChangedEvent(Fishnet.class));
 			}
-			this.entityManager.remove(deletableEntity);
-			this.entityManager.flush();
 			return "search?faces-redirect=true";
 		} catch (Exception e) {
 			FacesContext.getCurrentInstance().addMessage(null,
@@ -208,16 +220,6 @@ public class FishnetStateBean implements Serializable {
 	 * Support searching FishnetState entities with pagination.
 	 */
 
-	/**
-	 * Page position.
-	 */
-	private int page;
-	
-	/**
-	 * Page counter.
-	 */
-	private long count;
-	
 	/**
 	 * List of FishnetState objects.
 	 */
@@ -228,18 +230,14 @@ public class FishnetStateBean implements Serializable {
 	 */
 	private FishnetState example = new FishnetState();
 
-	public int getPage() {
-		return this.page;
-	}
-
-	public void setPage(int page) {
-		this.page = page;
-	}
-
 	public int getPageSize() {
 		return 10;
 	}
 
+	public SearchPages getPages() {
+		return this.pages;
+	}
+
 	public FishnetState getExample() {
 		return this.example;
 	}
@@ -253,37 +251,30 @@ public class FishnetStateBean implements Serializable {
 	 * @return null.
 	 */
 	public String search() {
-		this.page = 0;
+		this.pages.reset();
 		return null;
 	}
 
 	/**
 	 * When the user paginates through the page, it retrieves data for display a list of items on the page.
 	 */
+	@Monitored
 	public void paginate() {
 
-		CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
+		// Populate the count, counted once per search until fishnet states are written
+
+		this.pages.count(FishnetState.class, getSearchKey(), () -> {
+			CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
+			CriteriaQuery<Long> countCriteria = builder.createQuery(Long.class);
+			Root<FishnetState> root = countCriteria.from(FishnetState.class);
+			return this.entityManager.createQuery(countCriteria.select(builder.count(root))
+					.where(getSearchPredicates(root))).getSingleResult();
+		});
 
-		// Populate this.count
-
-		CriteriaQuery<Long> countCriteria = builder.createQuery(Long.class);
-		Root<FishnetState> root = countCriteria.from(FishnetState.class);
-		countCriteria = countCriteria.select(builder.count(root)).where(
-				getSearchPredicates(root));
-		this.count = this.entityManager.createQuery(countCriteria)
-				.getSingleResult();
-
-		// Populate this.pageItems
-
-		CriteriaQuery<FishnetState> criteria = builder
-				.createQuery(FishnetState.class);
-		root = criteria.from(FishnetState.class);
-		TypedQuery<FishnetState> query = this.entityManager
-				.createQuery(criteria.select(root).where(
-						getSearchPredicates(root)));
-		query.setFirstResult(this.page * getPageSize()).setMaxResults(
-				getPageSize());
-		this.pageItems = query.getResultList();
+		// Populate this.pageItems, seeking behind the last row of the previous page
+
+		this.pageItems = this.pages.paginate(this.entityManager, null, FishnetState.class, this::getSearchPredicates,
+				row -> new KeysetPaginator.Cursor(null, row.getId()), getPageSize());
 	}
 
 	/**
@@ -305,12 +296,17 @@ public class FishnetStateBean implements Serializable {
 		return predicatesList.toArray(new Predicate[predicatesList.size()]);
 	}
 
-	public List<FishnetState> getPageItems() {
-		return this.pageItems;
+	/**
+	 * Returns the search predicates normalized as key of the {@link CountCache}.
+	 * @return search key, empty for an unfiltered search.
+	 */
+	private String getSearchKey() {
+
+		return CountCache.searchKey("description", this.example.getDescription());
 	}
 
-	public long getCount() {
-		return this.count;
+	public List<FishnetState> getPageItems() {
+		return this.pageItems;
 	}
 
 	/*
@@ -320,120 +316,65 @@ public class FishnetStateBean implements Serializable {
 	
 	/**
 	 * Get all FishnetState objects as list.
+	 * The states are served by the {@link FishnetStateCatalog catalog} without a database access.
 	 * @return a list of FishnetState objects.
 	 */
 	public List<FishnetState> getAll() {
-		return FishnetStateBean.fetchAll(this.entityManager);
+		return this.catalog.getAll();
 	}
 	
 	public static List<FishnetState> fetchAll(EntityManager manager) {
 
 		CriteriaQuery<FishnetState> criteria = manager
 				.getCriteriaBuilder().createQuery(FishnetState.class);
-		return manager.createQuery(
-				criteria.select(criteria.from(FishnetState.class)))
+		return CacheRegions.cacheable(manager.createQuery(
+				criteria.select(criteria.from(FishnetState.class))))
 				.getResultList();
 	}
 	
 	/**
-	 * Lists of possible destination states for given currentstate and persontype  
-	 * this is the lowtec variant, realized with constant values, better way is to realize it with the checks in the databases
+	 * Checks the transition rule between two states for a person type.
+	 * The {@link FishnetStateCatalog catalog} precomputes all transitions with this rule.
 	 * 
-	 * @param manager is the entity manager provided by the client.
-	 * @param currentState is the source state (is required).
-	 * @param personType is the person who wants to change the state (is required).
-	 * @return list for FishnetStates.
-	 * @throws IllegalArgumentException by an error.
+	 * @param currentStateId is the id of the source state.
+	 * @param destinationStateId is the id of the destination state.
+	 * @param personTypeId is the id of the person type who wants to change the state.
+	 * @return true, if the person type may change the state.
 	 */
-	public static List<FishnetState> fetchAllPossibleDestinationStates(EntityManager manager, FishnetState currentState, PersonType personType) throws IllegalArgumentException{
+	public static boolean isPossibleTransition(int currentStateId, int destinationStateId, int personTypeId){
 
-		if(manager == null || currentState == null || personType == null){
-			throw new IllegalArgumentException("method parameters must not be null");
-		}
-		
-		List<FishnetState> valideDestinationStates = new ArrayList<>();
-		
-		for(FishnetState state : FishnetStateBean.fetchAll(manager)) {
-
-			switch(state.getId()){
-
-			case STATE_REPORTED:
-				break;
-
-			case STATE_RECOVERY_PENDING:
-				if(personType.getId() ==  PERSON_TYPE_RECOVERER && currentState.getId() == STATE_REPORTED){
-					valideDestinationStates.add(state);
-				}
-				break;
-
-			case STATE_RECOVERED:
-				if(personType.getId() ==  PERSON_TYPE_RECOVERER && currentState.getId() == STATE_RECOVERY_PENDING){
-					valideDestinationStates.add(state);
-				}
-				break;
-				
-			case STATE_LOST:	
-				if(personType.getId() !=  PERSON_TYPE_ANONYMOUS){
-					valideDestinationStates.add(state);
-				}
-				break;
-				
-			default:
-				//DO nothing
-			}
-		}
+		switch(destinationStateId){
 
-		return valideDestinationStates;
-	}
-
-	/**
-	 * Retrieve all FishnetState with the flag relevant for recover.
-	 * @param entityManager.
-	 * @return all FishnetState which are relevant to display, in case of recovery.
-	 */
-	public static List<FishnetState> getAllRelevantForRecovery(EntityManager entityManager){
+		case STATE_REPORTED:
+			return false;
 
-		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
-		CriteriaQuery<FishnetState> criteria = builder.createQuery(FishnetState.class);
-		Root<FishnetState> root = criteria.from(FishnetState.class);
+		case STATE_RECOVERY_PENDING:
+			return personTypeId ==  PERSON_TYPE_RECOVERER && currentStateId == STATE_REPORTED;
 
-		return entityManager.createQuery(
-				criteria.select(root).where(builder.isTrue(
-						root.<Boolean>get("relevantForRecoveryFlag")))).getResultList();
+		case STATE_RECOVERED:
+			return personTypeId ==  PERSON_TYPE_RECOVERER && currentStateId == STATE_RECOVERY_PENDING;
+			
+		case STATE_LOST:	
+			return personTypeId !=  PERSON_TYPE_ANONYMOUS;
+			
+		default:
+			//DO nothing
+			return false;
+		}
 	}
 
-	@Resource
-	private SessionContext sessionContext;
+	/**
+	 * Application wide converter with a cache of FishnetState entities.
+	 */
+	@Inject
+	private FishnetStateConverter converter;
 
 	/**
 	 * Converts an object to a String for displaying it as dataset.
-	 * @return object as string.
+	 * @return the shared converter of FishnetState entities.
 	 */
 	public Converter getConverter() {
-
-		final FishnetStateBean ejbProxy = this.sessionContext
-				.getBusinessObject(FishnetStateBean.class);
-
-		return new Converter() {
-
-			@Override
-			public Object getAsObject(FacesContext context,
-					UIComponent component, String value) {
-
-				return ejbProxy.findById(Integer.valueOf(value));
-			}
-
-			@Override
-			public String getAsString(FacesContext context,
-					UIComponent component, Object value) {
-
-				if (value == null) {
-					return "";
-				}
-
-				return String.valueOf(((FishnetState) value).getId());
-			}
-		};
+		return this.converter;
 	}
 
 	/*
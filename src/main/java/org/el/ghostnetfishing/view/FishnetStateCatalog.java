@@ -0,0 +1,205 @@
+package org.el.ghostnetfishing.view;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.el.ghostnetfishing.model.FishnetState;
+import org.el.ghostnetfishing.model.PersonType;
+
+/**
+ * FishnetStateCatalog keeps all fishnet states in memory for the application.
+ * <p/>
+ * The states are loaded once into an immutable snapshot, together with the
+ * transition matrix of possible destination states per current state and
+ * person type. The snapshot is dropped, when FishnetState or PersonType
+ * entities are written, and loaded again on the next access.
+ */
+
+@Singleton
+@Lock(LockType.READ)
+public class FishnetStateCatalog {
+
+	/**
+	 * Loading entity manager with unit name ghostNetFishing-persistence-unit.
+	 */
+	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit")
+	private EntityManager entityManager;
+
+	/**
+	 * Current snapshot of the fishnet state table, null when it has to be loaded.
+	 */
+	private volatile Snapshot snapshot;
+
+	/**
+	 * Creates the catalog for the container, which injects the entity manager.
+	 */
+	public FishnetStateCatalog() {
+	}
+
+	/**
+	 * Creates a catalog outside the container, e.g. for the benchmarks.
+	 * @param entityManager loading the states and person types.
+	 */
+	public FishnetStateCatalog(EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	/**
+	 * Get all FishnetState objects as list.
+	 * @return an unmodifiable list of FishnetState objects.
+	 */
+	public List<FishnetState> getAll() {
+		return snapshot().all;
+	}
+
+	/**
+	 * Get all FishnetState objects with the flag relevant for recover.
+	 * @return an unmodifiable list of FishnetState objects.
+	 */
+	public List<FishnetState> getAllRelevantForRecovery() {
+		return snapshot().relevantForRecovery;
+	}
+
+	/**
+	 * Used for search FishnetState by id.
+	 * @param id.
+	 * @return FishnetState with wanted id, or null if unknown.
+	 */
+	public FishnetState findById(Integer id) {
+		return id == null ? null : snapshot().byId.get(id);
+	}
+
+	/**
+	 * Lists of possible destination states for given currentstate and persontype.
+	 * The lists are taken from the transition matrix and shared, they must not be changed.
+	 * @param currentState is the source state (is required).
+	 * @param personType is the person who wants to change the state (is required).
+	 * @return unmodifiable list for FishnetStates, sorted by id.
+	 * @throws IllegalArgumentException by an error.
+	 */
+	public List<FishnetState> getPossibleDestinationStates(FishnetState currentState, PersonType personType) throws IllegalArgumentException {
+
+		if (currentState == null || personType == null || personType.getId() == null) {
+			throw new IllegalArgumentException("method parameters must not be null");
+		}
+		return snapshot().destinationStates(currentState.getId(), personType.getId());
+	}
+
+	/**
+	 * Drops the snapshot after FishnetState or PersonType entities are written successfully.
+	 * @param event about the written entities.
+	 */
+	public void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangedEvent event) {
+		if (event.concerns(FishnetState.class) || event.concerns(PersonType.class)) {
+			this.snapshot = null;
+		}
+	}
+
+	/**
+	 * Returns the current snapshot, loads it if necessary.
+	 * @return snapshot of the fishnet state table.
+	 */
+	private Snapshot snapshot() {
+
+		Snapshot current = this.snapshot;
+		if (current == null) {
+			current = new Snapshot(FishnetStateBean.fetchAll(this.entityManager),
+					CacheRegions.cacheable(this.entityManager
+							.createQuery("select p.id from PersonType p", Integer.class))
+							.getResultList());
+			this.snapshot = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Immutable view of all fishnet states, their lookups and the transition matrix.
+	 */
+	private static final class Snapshot {
+
+		private final List<FishnetState> all;
+
+		private final List<FishnetState> relevantForRecovery;
+
+		private final Map<Integer, FishnetState> byId;
+
+		/**
+		 * Transition matrix, indexed by current state id and person type id.
+		 * Filled for all known states and person types, other ids are computed on each use.
+		 */
+		private final List<FishnetState>[][] transitions;
+
+		@SuppressWarnings("unchecked")
+		Snapshot(List<FishnetState> states, List<Integer> personTypeIds) {
+
+			List<FishnetState> sorted = new ArrayList<FishnetState>(states);
+			Collections.sort(sorted, new Comparator<FishnetState>() {
+				@Override
+				public int compare(FishnetState first, FishnetState second) {
+					return Integer.compare(first.getId(), second.getId());
+				}
+			});
+
+			List<FishnetState> relevant = new ArrayList<FishnetState>();
+			Map<Integer, FishnetState> byId = new HashMap<Integer, FishnetState>();
+			for (FishnetState state : sorted) {
+				if (state.isRelevantForRecoveryFlag()) {
+					relevant.add(state);
+				}
+				byId.put(state.getId(), state);
+			}
+			this.all = Collections.unmodifiableList(sorted);
+			this.relevantForRecovery = Collections.unmodifiableList(relevant);
+			this.byId = Collections.unmodifiableMap(byId);
+
+			int maxPersonTypeId = -1;
+			for (Integer personTypeId : personTypeIds) {
+				maxPersonTypeId = Math.max(maxPersonTypeId, personTypeId);
+			}
+			int maxStateId = sorted.isEmpty() ? -1 : sorted.get(sorted.size() - 1).getId();
+			this.transitions = (List<FishnetState>[][]) new List<?>[maxStateId + 1][maxPersonTypeId + 1];
+			for (FishnetState state : sorted) {
+				for (Integer personTypeId : personTypeIds) {
+					if (state.getId() >= 0 && personTypeId >= 0) {
+						this.transitions[state.getId()][personTypeId] = compute(state.getId(), personTypeId);
+					}
+				}
+			}
+		}
+
+		List<FishnetState> destinationStates(int currentStateId, int personTypeId) {
+
+			if (currentStateId >= 0 && currentStateId < this.transitions.length && personTypeId >= 0
+					&& personTypeId < this.transitions[currentStateId].length) {
+				List<FishnetState> destinations = this.transitions[currentStateId][personTypeId];
+				if (destinations != null) {
+					return destinations;
+				}
+			}
+			return compute(currentStateId, personTypeId);
+		}
+
+		private List<FishnetState> compute(int currentStateId, int personTypeId) {
+
+			List<FishnetState> computed = new ArrayList<FishnetState>();
+			for (FishnetState state : this.all) {
+				if (FishnetStateBean.isPossibleTransition(currentStateId, state.getId(), personTypeId)) {
+					computed.add(state);
+				}
+			}
+			return Collections.unmodifiableList(computed);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package org.el.ghostnetfishing.view;
+
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.el.ghostnetfishing.model.FishnetState;
+
+/**
+ * FishnetStateConverter converts FishnetState entities for select components of all views.
+ * The states are taken from the {@link FishnetStateCatalog catalog}.
+ */
+
+@Named
+@ApplicationScoped
+public class FishnetStateConverter extends EntityConverter<FishnetState> {
+
+	/**
+	 * Application wide cache of all fishnet states.
+	 */
+	@Inject
+	private FishnetStateCatalog catalog;
+
+	/**
+	 * Drops the cached entities, after FishnetState entities are written successfully.
+	 * @param event about the written entities.
+	 */
+	public void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangedEvent event) {
+		if (event.concerns(FishnetState.class)) {
+			invalidate();
+		}
+	}
+
+	@Override
+	protected Class<FishnetState> getType() {
+		return FishnetState.class;
+	}
+
+	@Override
+	protected Integer getId(FishnetState entity) {
+		return entity.getId();
+	}
+
+	@Override
+	protected FishnetState load(Integer id) {
+		return this.catalog.findById(id);
+	}
+
+	@Override
+	protected List<FishnetState> loadAll() {
+		return this.catalog.getAll();
+	}
+}
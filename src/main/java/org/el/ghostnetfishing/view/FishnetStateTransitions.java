@@ -0,0 +1,226 @@
+package org.el.ghostnetfishing.view;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+
+import org.el.ghostnetfishing.model.Fishnet;
+import org.el.ghostnetfishing.model.FishnetRow;
+import org.hibernate.Session;
+
+/**
+ * Compare-and-set transitions of fishnet states.
+ * <p/>
+ * A transition is only written, if the fishnet still has the version and
+ * the state the user saw. Every transition is a single UPDATE conditioned
+ * on both, sent in JDBC batches of the size configured for the persistence
+ * unit; no row is locked beyond its own UPDATE.
+ * Transitions whose fishnet was changed meanwhile update nothing and are
+ * returned as conflicts, the other transitions are written nevertheless.
+ */
+public final class FishnetStateTransitions {
+
+	/**
+	 * Update of a fishnet, which still has the expected version and state; a null state matches a fishnet without state.
+	 */
+	private static final String UPDATE = "update %s"
+			+ " set fishnet_state_id = ?, recovery_messaging_person_id = ?, version = version + 1"
+			+ " where id = ? and version = ? and (fishnet_state_id = ? or (fishnet_state_id is null and ? is null))";
+
+	/**
+	 * Change of one fishnet from the state the user saw to a new state.
+	 */
+	public static class Transition {
+
+		private final int fishnetId;
+
+		/**
+		 * Version of the fishnet the user saw.
+		 */
+		private final int version;
+
+		/**
+		 * State the user saw, null without state.
+		 */
+		private final Integer expectedStateId;
+
+		private final int newStateId;
+
+		/**
+		 * Recovering person after the transition, null without recoverer.
+		 */
+		private final Integer recovererId;
+
+		public Transition(int fishnetId, int version, Integer expectedStateId, int newStateId, Integer recovererId) {
+			this.fishnetId = fishnetId;
+			this.version = version;
+			this.expectedStateId = expectedStateId;
+			this.newStateId = newStateId;
+			this.recovererId = recovererId;
+		}
+
+		/**
+		 * Creates the transition of a row to its selected new state.
+		 * @param row with a new state.
+		 * @param recovererId of the recovering person, may be null.
+		 * @return transition from the state of the row.
+		 */
+		public static Transition of(FishnetRow row, Integer recovererId) {
+			return new Transition(row.getId(), row.getVersion(), row.getStateId(), row.getNewFishnetState().getId(),
+					recovererId);
+		}
+
+		public int getFishnetId() {
+			return this.fishnetId;
+		}
+
+		public int getVersion() {
+			return this.version;
+		}
+
+		public Integer getExpectedStateId() {
+			return this.expectedStateId;
+		}
+
+		public int getNewStateId() {
+			return this.newStateId;
+		}
+
+		public Integer getRecovererId() {
+			return this.recovererId;
+		}
+	}
+
+	/**
+	 * Writes the transitions, whose fishnets are unchanged since they were read.
+	 * @param manager is the entity manager of the current transaction.
+	 * @param transitions to write.
+	 * @return transitions not written because of a concurrent change, in the given order.
+	 */
+	public static List<Transition> compareAndSet(EntityManager manager, final List<Transition> transitions) {
+
+		final Set<Transition> failed = new HashSet<Transition>();
+		final List<Transition> unknown = new ArrayList<Transition>();
+
+		final int batchSize = JdbcBatches.size(manager);
+		final String update = String.format(UPDATE, JdbcBatches.table(manager, Fishnet.class));
+
+		// pending changes of the context must reach the database first
+		manager.flush();
+		manager.unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(update)) {
+				boolean batching = true;
+				for (int from = 0; from < transitions.size(); from += batchSize) {
+					List<Transition> batch = transitions.subList(from, Math.min(from + batchSize, transitions.size()));
+					if (!batching) {
+
+						// one statement at a time gives exact update counts
+						for (Transition transition : batch) {
+							bind(statement, transition);
+							if (statement.executeUpdate() == 0) {
+								failed.add(transition);
+							}
+						}
+						continue;
+					}
+					for (Transition transition : batch) {
+						bind(statement, transition);
+						statement.addBatch();
+					}
+
+					// every statement reports, whether its row matched
+					int[] counts = statement.executeBatch();
+					for (int i = 0; i < batch.size(); i++) {
+						if (i >= counts.length || counts[i] == Statement.SUCCESS_NO_INFO) {
+							unknown.add(batch.get(i));
+
+							// the driver rewrites batches, the remaining transitions are sent singly
+							batching = false;
+						} else if (counts[i] == 0) {
+							failed.add(batch.get(i));
+						}
+					}
+				}
+			}
+		});
+		failed.addAll(resolveUnknown(manager, unknown, batchSize));
+
+		List<Transition> conflicts = new ArrayList<Transition>(failed.size());
+		for (Transition transition : transitions) {
+			if (failed.contains(transition)) {
+				conflicts.add(transition);
+			}
+		}
+		return conflicts;
+	}
+
+	private static void bind(PreparedStatement statement, Transition transition) throws SQLException {
+
+		statement.setInt(1, transition.getNewStateId());
+		if (transition.getRecovererId() == null) {
+			statement.setNull(2, Types.INTEGER);
+		} else {
+			statement.setInt(2, transition.getRecovererId());
+		}
+		statement.setInt(3, transition.getFishnetId());
+		statement.setInt(4, transition.getVersion());
+		if (transition.getExpectedStateId() == null) {
+			statement.setNull(5, Types.INTEGER);
+			statement.setNull(6, Types.INTEGER);
+		} else {
+			statement.setInt(5, transition.getExpectedStateId());
+			statement.setInt(6, transition.getExpectedStateId());
+		}
+	}
+
+	/**
+	 * Checks transitions without update count, as reported by drivers rewriting batches, against the database.
+	 * A transition is taken as written, if the fishnet has its new state, its recoverer and the next version now.
+	 * Of two concurrent claims from the same version to the same state, only the one of the recoverer now
+	 * stored counts as written.
+	 * @return transitions not written.
+	 */
+	private static List<Transition> resolveUnknown(EntityManager manager, List<Transition> unknown, int batchSize) {
+
+		List<Transition> conflicts = new ArrayList<Transition>();
+		for (int from = 0; from < unknown.size(); from += batchSize) {
+			List<Transition> batch = unknown.subList(from, Math.min(from + batchSize, unknown.size()));
+			List<Integer> ids = new ArrayList<Integer>(batch.size());
+			for (Transition transition : batch) {
+				ids.add(transition.getFishnetId());
+			}
+			Map<Integer, Object[]> current = new HashMap<Integer, Object[]>();
+			for (Object[] row : manager.createQuery(
+					"select f.id, f.version, s.id, r.id from Fishnet f left join f.fishnetState s"
+					+ " left join f.personByRecoveryMessagingPersonId r where f.id in :ids",
+					Object[].class)
+					.setParameter("ids", ids)
+					.getResultList()) {
+				current.put((Integer) row[0], row);
+			}
+			for (Transition transition : batch) {
+				Object[] row = current.get(transition.getFishnetId());
+				if (row == null || (Integer) row[1] != transition.getVersion() + 1
+						|| !Integer.valueOf(transition.getNewStateId()).equals(row[2])
+						|| !Objects.equals(transition.getRecovererId(), row[3])) {
+					conflicts.add(transition);
+				}
+			}
+		}
+		return conflicts;
+	}
+
+	private FishnetStateTransitions() {
+		// Can never be called
+	}
+}
@@ -0,0 +1,415 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.el.ghostnetfishing.model.Fishnet;
+import org.el.ghostnetfishing.model.FishnetState;
+
+/**
+ * FishnetStatistics counts the fishnets and their total size per state and the fishnets per recovering person.
+ * <p/>
+ * The counters are built on first use with two grouped queries and then
+ * changed with every {@link FishnetChangedEvent}, so reading them doesn't
+ * touch the database. The totals and the ranking of the recovering persons
+ * are kept up to date with the counters, a read only copies them. Like the
+ * {@link FishnetClusterIndex}, the counters are read under a read lock and
+ * only applying an event takes the write lock. Changes of an unknown set of
+ * fishnets mark the counters for a rebuild, the outdated counters are
+ * served until then. A timer reconciles the counters against the database
+ * regularly and counts the corrected differences, which may come from
+ * events of transactions overlapping a rebuild.
+ */
+
+@Named
+@Singleton
+@Lock(LockType.READ)
+public class FishnetStatistics {
+
+	private static final Logger LOGGER = Logger.getLogger(FishnetStatistics.class.getName());
+
+	/**
+	 * Number of recovering persons shown, ordered by their number of fishnets.
+	 */
+	private static final int MAX_RECOVERERS = 20;
+
+	/**
+	 * Loading entity manager with unit name ghostNetFishing-persistence-unit.
+	 */
+	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit")
+	private EntityManager entityManager;
+
+	/**
+	 * Application wide cache of all fishnet states.
+	 */
+	@Inject
+	private FishnetStateCatalog catalog;
+
+	/**
+	 * Counters of states and recovering persons, changed only under the write lock.
+	 */
+	private final LazySnapshot<Counters> counters = new LazySnapshot<Counters>(this::build);
+
+	/**
+	 * Time of the last reconciliation, null before the first one.
+	 */
+	private volatile Date lastReconciled;
+
+	/**
+	 * Number of counters corrected by reconciliations.
+	 */
+	private final AtomicLong corrections = new AtomicLong();
+
+	/**
+	 * Returns the counters of all states, in the order of the states and fishnets without state last.
+	 * @return list of counters, states without fishnets have zero counts.
+	 */
+	public List<StateStatistics> getStates() {
+
+		Counters counters = this.counters.get();
+		List<StateStatistics> result = new ArrayList<StateStatistics>();
+		for (FishnetState state : this.catalog.getAll()) {
+			Counter counter = counters.states.get(state.getId());
+			result.add(new StateStatistics(state.getId(), state.getDescription(),
+					counter == null ? 0 : counter.count, counter == null ? 0 : counter.size));
+		}
+		Counter withoutState = counters.states.get(null);
+		if (withoutState != null) {
+			result.add(new StateStatistics(null, "ohne Status", withoutState.count, withoutState.size));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the recovering persons with the most fishnets.
+	 * @return list of at most {@link #MAX_RECOVERERS} counters, ordered by descending count.
+	 */
+	public List<RecovererStatistics> getRecoverers() {
+		return this.counters.get().topRecoverers;
+	}
+
+	public long getTotalCount() {
+		return this.counters.get().totalCount;
+	}
+
+	public double getTotalSize() {
+		return this.counters.get().totalSize;
+	}
+
+	public Date getLastReconciled() {
+		return this.lastReconciled;
+	}
+
+	public long getCorrections() {
+		return this.corrections.get();
+	}
+
+	/**
+	 * Applies the changes of fishnets after the transaction succeeded.
+	 * @param event about the written entities.
+	 */
+	@Lock(LockType.WRITE)
+	public void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangedEvent event) {
+
+		Counters counters = this.counters.peek();
+		if (counters == null) {
+			return;
+		}
+		if (event instanceof FishnetChangedEvent) {
+			FishnetChangedEvent change = (FishnetChangedEvent) event;
+			if (change.getBefore() != null) {
+				counters.add(change.getBefore(), -1);
+			}
+			if (change.getAfter() != null) {
+				counters.add(change.getAfter(), 1);
+			}
+		} else if (event instanceof FishnetsDetachedEvent) {
+			counters.detach(((FishnetsDetachedEvent) event).getPersonId());
+		} else if (event.concerns(Fishnet.class)) {
+			this.counters.markStale();
+		}
+	}
+
+	/**
+	 * Compares the counters with the database every ten minutes and replaces them.
+	 * <p/>
+	 * Runs under the read lock like a lazy build, so no event is applied
+	 * between reading the database and publishing the new counters.
+	 */
+	@Schedule(hour = "*", minute = "*/10", persistent = false)
+	public void reconcile() {
+
+		Counters previous = this.counters.peek();
+		Counters current = build();
+		this.counters.set(current);
+		this.lastReconciled = new Date();
+		if (previous == null) {
+			return;
+		}
+		long differences = countDifferences(previous.states, current.states)
+				+ countDifferences(previous.recoverers, current.recoverers);
+		if (differences > 0) {
+			LOGGER.info("Reconciliation corrected " + differences + " fishnet counters");
+			this.corrections.addAndGet(differences);
+		}
+	}
+
+	/**
+	 * Builds the counters from the database.
+	 */
+	private Counters build() {
+
+		Counters counters = new Counters();
+		for (Object[] row : this.entityManager.createQuery(
+				"select s.id, count(f), sum(f.size) from Fishnet f left join f.fishnetState s group by s.id",
+				Object[].class).getResultList()) {
+			Counter counter = new Counter((Integer) row[0], (Long) row[1], (Double) row[2]);
+			counters.states.put(counter.key, counter);
+			counters.totalCount += counter.count;
+			counters.totalSize += counter.size;
+		}
+		for (Object[] row : this.entityManager.createQuery(
+				"select r.id, count(f), sum(f.size) from Fishnet f join f.personByRecoveryMessagingPersonId r group by r.id",
+				Object[].class).getResultList()) {
+			Counter counter = new Counter((Integer) row[0], (Long) row[1], (Double) row[2]);
+			counters.recoverers.put(counter.key, counter);
+			counters.ranking.add(counter);
+		}
+		counters.rank();
+		return counters;
+	}
+
+	/**
+	 * Counts the keys, whose count differs between the maps.
+	 */
+	private static long countDifferences(Map<Integer, Counter> previous, Map<Integer, Counter> current) {
+
+		long differences = 0;
+		for (Map.Entry<Integer, Counter> entry : current.entrySet()) {
+			Counter counter = previous.get(entry.getKey());
+			if (counter == null || counter.count != entry.getValue().count) {
+				differences++;
+			}
+		}
+		for (Integer key : previous.keySet()) {
+			if (!current.containsKey(key)) {
+				differences++;
+			}
+		}
+		return differences;
+	}
+
+	/**
+	 * Counters with their totals and the ranking of the recovering persons.
+	 */
+	private static final class Counters {
+
+		/**
+		 * Counters per state id, the key null counts fishnets without state.
+		 */
+		private final Map<Integer, Counter> states = new HashMap<Integer, Counter>();
+
+		/**
+		 * Counters per id of the recovering person.
+		 */
+		private final Map<Integer, Counter> recoverers = new HashMap<Integer, Counter>();
+
+		/**
+		 * Counters of the recovering persons by descending count and ascending id.
+		 */
+		private final NavigableSet<Counter> ranking = new TreeSet<Counter>(
+				Comparator.comparingLong((Counter counter) -> counter.count).reversed()
+						.thenComparing(counter -> counter.key));
+
+		private long totalCount;
+
+		private double totalSize;
+
+		/**
+		 * First {@link #MAX_RECOVERERS} entries of the ranking, replaced after every change.
+		 */
+		private volatile List<RecovererStatistics> topRecoverers = Collections.emptyList();
+
+		void add(FishnetChangedEvent.Snapshot snapshot, int sign) {
+
+			add(this.states, null, snapshot.getStateId(), snapshot.getSize(), sign);
+			this.totalCount += sign;
+			this.totalSize += sign * snapshot.getSize();
+			if (snapshot.getRecovererId() != null) {
+				add(this.recoverers, this.ranking, snapshot.getRecovererId(), snapshot.getSize(), sign);
+				rank();
+			}
+		}
+
+		/**
+		 * Drops the counter of a recovering person, whose fishnets lost their reference to it.
+		 */
+		void detach(int personId) {
+
+			Counter counter = this.recoverers.remove(personId);
+			if (counter != null) {
+				this.ranking.remove(counter);
+				rank();
+			}
+		}
+
+		/**
+		 * Copies the first entries of the ranking for the readers.
+		 */
+		void rank() {
+
+			List<RecovererStatistics> top = new ArrayList<RecovererStatistics>(MAX_RECOVERERS);
+			for (Counter counter : this.ranking) {
+				if (top.size() == MAX_RECOVERERS) {
+					break;
+				}
+				top.add(new RecovererStatistics(counter.key, counter.count, counter.size));
+			}
+			this.topRecoverers = Collections.unmodifiableList(top);
+		}
+
+		/**
+		 * Changes a counter, keeping it in the ranking if given.
+		 */
+		private static void add(Map<Integer, Counter> counters, NavigableSet<Counter> ranking, Integer key,
+				double size, int sign) {
+
+			Counter counter = counters.get(key);
+			if (counter == null) {
+				counter = new Counter(key, 0, 0.0);
+				counters.put(key, counter);
+			} else if (ranking != null) {
+				ranking.remove(counter);
+			}
+			counter.count += sign;
+			counter.size += sign * size;
+			if (counter.count <= 0) {
+				counters.remove(key);
+			} else if (ranking != null) {
+				ranking.add(counter);
+			}
+		}
+	}
+
+	/**
+	 * Number and total size of fishnets.
+	 */
+	private static final class Counter {
+
+		/**
+		 * Id of the state or recovering person counted.
+		 */
+		private final Integer key;
+
+		private long count;
+
+		private double size;
+
+		Counter(Integer key, long count, Double size) {
+			this.key = key;
+			this.count = count;
+			this.size = size == null ? 0.0 : size;
+		}
+	}
+
+	/**
+	 * Counters of one fishnet state.
+	 */
+	public static class StateStatistics implements Serializable {
+
+		/**
+		 * Uniquely identify the version of a serializable.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Id of the state, null for fishnets without state.
+		 */
+		private final Integer stateId;
+
+		private final String description;
+
+		private final long count;
+
+		private final double size;
+
+		public StateStatistics(Integer stateId, String description, long count, double size) {
+			this.stateId = stateId;
+			this.description = description;
+			this.count = count;
+			this.size = size;
+		}
+
+		public Integer getStateId() {
+			return this.stateId;
+		}
+
+		public String getDescription() {
+			return this.description;
+		}
+
+		public long getCount() {
+			return this.count;
+		}
+
+		public double getSize() {
+			return this.size;
+		}
+	}
+
+	/**
+	 * Counters of one recovering person.
+	 */
+	public static class RecovererStatistics implements Serializable {
+
+		/**
+		 * Uniquely identify the version of a serializable.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		private final int personId;
+
+		private final long count;
+
+		private final double size;
+
+		public RecovererStatistics(int personId, long count, double size) {
+			this.personId = personId;
+			this.count = count;
+			this.size = size;
+		}
+
+		public int getPersonId() {
+			return this.personId;
+		}
+
+		public long getCount() {
+			return this.count;
+		}
+
+		public double getSize() {
+			return this.size;
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package org.el.ghostnetfishing.view;
+
+import org.el.ghostnetfishing.model.Fishnet;
+
+/**
+ * CDI event fired, when the fishnets of a deleted person lose their reference to it.
+ * <p/>
+ * Only the person references change, positions, sizes and states of the
+ * fishnets stay the same. Observers keeping those in memory ignore it
+ * instead of rebuilding as after a plain EntityChangedEvent for Fishnet,
+ * which it still is for caches of whole Fishnet entities.
+ */
+public class FishnetsDetachedEvent extends EntityChangedEvent {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Id of the deleted person.
+	 */
+	private final int personId;
+
+	public FishnetsDetachedEvent(int personId) {
+		super(Fishnet.class);
+		this.personId = personId;
+	}
+
+	public int getPersonId() {
+		return this.personId;
+	}
+}
@@ -0,0 +1,56 @@
+package org.el.ghostnetfishing.view;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+
+/**
+ * Settings of the persistence unit for statements sent with plain JDBC.
+ * <p/>
+ * The batch helpers use the batch size Hibernate uses for its own writes
+ * and take the table names from the mapping, so both are configured in one
+ * place only.
+ */
+public final class JdbcBatches {
+
+	/**
+	 * Property of the persistence unit with the number of statements per JDBC batch.
+	 */
+	private static final String BATCH_SIZE_PROPERTY = "hibernate.jdbc.batch_size";
+
+	/**
+	 * Batch size used, if the persistence unit doesn't configure one.
+	 */
+	private static final int DEFAULT_BATCH_SIZE = 50;
+
+	/**
+	 * Returns the number of statements per JDBC batch configured for the persistence unit.
+	 * @param manager is the entity manager of the current transaction.
+	 * @return batch size, at least 1.
+	 */
+	public static int size(EntityManager manager) {
+
+		Object value = manager.getEntityManagerFactory().getProperties().get(BATCH_SIZE_PROPERTY);
+		try {
+			return value == null ? DEFAULT_BATCH_SIZE : Math.max(1, Integer.parseInt(value.toString().trim()));
+		} catch (NumberFormatException e) {
+			return DEFAULT_BATCH_SIZE;
+		}
+	}
+
+	/**
+	 * Returns the qualified table name of a mapped entity.
+	 * @param manager is the entity manager of the current transaction.
+	 * @param type of the entity.
+	 * @return table name with catalog, as used in SQL statements.
+	 */
+	public static String table(EntityManager manager, Class<?> type) {
+		return ((AbstractEntityPersister) manager.unwrap(Session.class).getSessionFactory().getClassMetadata(type))
+				.getTableName();
+	}
+
+	private JdbcBatches() {
+		// Can never be called
+	}
+}
@@ -0,0 +1,300 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+
+/**
+ * Keyset pagination for the search beans.
+ * <p/>
+ * Instead of skipping rows with an offset, a page is read with a seek behind
+ * the key of the last row of the previous page, ordered by an optional sort
+ * attribute and the id. The keys of visited pages are remembered, so paging
+ * back and forth reads one page per request. Keys can be handed to the
+ * client as opaque cursor tokens. A page requested without a known key is
+ * resolved by walking over the keys of the pages before it, one query per
+ * page; pages more than {@link #MAX_WALKED_PAGES} behind the nearest known
+ * key are not walked, the first page is read instead.
+ */
+public class KeysetPaginator implements Serializable {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Query hint of a load graph, the associations of the graph are fetched in addition to the eager ones.
+	 */
+	public static final String LOAD_GRAPH = "javax.persistence.loadgraph";
+
+	/**
+	 * Maximum number of pages walked to resolve an unknown cursor.
+	 */
+	public static final int MAX_WALKED_PAGES = 10;
+
+	/**
+	 * Attribute sorted by before the id, must not be null in the table. Null sorts by id only.
+	 */
+	private final String sortAttribute;
+
+	/**
+	 * Known cursors, the entry at index n is the key of the last row before page n, or null if unknown.
+	 */
+	private final List<Cursor> cursors = new ArrayList<Cursor>();
+
+	/**
+	 * When setted, there are more rows after the last read page.
+	 */
+	private boolean nextPage;
+
+	/**
+	 * Number of the last read page, 0 when an unknown cursor was too far away.
+	 */
+	private int page;
+
+	/**
+	 * Creates a paginator sorting by id only.
+	 */
+	public KeysetPaginator() {
+		this(null);
+	}
+
+	/**
+	 * Creates a paginator sorting by an attribute and the id.
+	 * @param sortAttribute name of a not nullable String attribute.
+	 */
+	public KeysetPaginator(String sortAttribute) {
+		this.sortAttribute = sortAttribute;
+	}
+
+	/**
+	 * Forgets all known cursors, e.g. when the search predicates changed.
+	 */
+	public void reset() {
+		this.cursors.clear();
+		this.nextPage = false;
+	}
+
+	public boolean isNextPage() {
+		return this.nextPage;
+	}
+
+	public int getPage() {
+		return this.page;
+	}
+
+	/**
+	 * Returns the opaque token of the cursor before a page.
+	 * @param page number.
+	 * @return token, or null if the cursor is unknown or the page is the first.
+	 */
+	public String getCursorToken(int page) {
+
+		Cursor cursor = page > 0 && page < this.cursors.size() ? this.cursors.get(page) : null;
+		if (cursor == null) {
+			return null;
+		}
+		String key = cursor.id + ":" + (cursor.sortValue == null ? "" : cursor.sortValue);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Takes the cursor before a page from an opaque token. Invalid tokens are ignored.
+	 * @param page number.
+	 * @param token as returned by {@link #getCursorToken(int)}.
+	 */
+	public void setCursorToken(int page, String token) {
+
+		if (page <= 0 || token == null || token.isEmpty()) {
+			return;
+		}
+		try {
+			String key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int separator = key.indexOf(':');
+			Cursor cursor = new Cursor(this.sortAttribute == null ? null : key.substring(separator + 1),
+					Integer.valueOf(key.substring(0, separator)));
+			remember(page, cursor);
+		} catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+			// unknown cursors are resolved by walking
+		}
+	}
+
+	/**
+	 * Reads a page of entities.
+	 * @see #paginate(EntityManager, Class, Class, Selector, Restriction, KeyReader, int, int)
+	 */
+	public <T> List<T> paginate(EntityManager manager, Class<T> type, Restriction<T> restriction,
+			KeyReader<T> keyReader, int page, int pageSize) {
+		return paginate(manager, type, type, root -> root, restriction, keyReader, page, pageSize);
+	}
+
+	/**
+	 * Reads a page.
+	 * @param manager is the entity manager provided by the client.
+	 * @param type of the root entity.
+	 * @param resultType of the rows.
+	 * @param selector builds the selection of a row.
+	 * @param restriction builds the search predicates.
+	 * @param keyReader reads the key of a row.
+	 * @param page number, starting with 0.
+	 * @param pageSize maximum number of rows.
+	 * @return list of rows of the page, or of the first page if the cursor of the page couldn't be resolved.
+	 * @see #getPage()
+	 */
+	public <T, R> List<R> paginate(EntityManager manager, Class<T> type, Class<R> resultType,
+			Selector<T, R> selector, Restriction<T> restriction, KeyReader<R> keyReader, int page, int pageSize) {
+
+		CriteriaBuilder builder = manager.getCriteriaBuilder();
+		Cursor after = seek(manager, type, restriction, page, pageSize);
+		this.page = after == null ? 0 : page;
+
+		CriteriaQuery<R> criteria = builder.createQuery(resultType);
+		Root<T> root = criteria.from(type);
+		criteria.select(selector.select(root))
+				.where(getPredicates(builder, root, restriction, after))
+				.orderBy(getOrder(builder, root));
+
+		// one more row than needed tells if there is a next page
+		List<R> rows = manager.createQuery(criteria).setMaxResults(pageSize + 1).getResultList();
+		this.nextPage = rows.size() > pageSize;
+		if (this.nextPage) {
+			rows = new ArrayList<R>(rows.subList(0, pageSize));
+		}
+
+		// remember where the next page starts
+		if (!rows.isEmpty()) {
+			remember(this.page + 1, keyReader.read(rows.get(rows.size() - 1)));
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the cursor before a page, unknown cursors are resolved by reading the keys of the pages in between.
+	 * @return cursor, or null for the first page, an empty result or a page too far behind the known cursors.
+	 */
+	private <T> Cursor seek(EntityManager manager, Class<T> type, Restriction<T> restriction, int page, int pageSize) {
+
+		if (page <= 0) {
+			return null;
+		}
+		Cursor known = page < this.cursors.size() ? this.cursors.get(page) : null;
+		if (known != null) {
+			return known;
+		}
+
+		// walk from the nearest known cursor before the page
+		int from = Math.min(page, this.cursors.size()) - 1;
+		while (from > 0 && this.cursors.get(from) == null) {
+			from--;
+		}
+		if (page - Math.max(from, 0) > MAX_WALKED_PAGES) {
+			return null;
+		}
+		Cursor cursor = from > 0 ? this.cursors.get(from) : null;
+
+		CriteriaBuilder builder = manager.getCriteriaBuilder();
+		for (int current = Math.max(from, 0); current < page; current++) {
+			CriteriaQuery<Object[]> criteria = builder.createQuery(Object[].class);
+			Root<T> root = criteria.from(type);
+			criteria.multiselect(this.sortAttribute == null ? root.get("id") : root.get(this.sortAttribute),
+					root.get("id"))
+					.where(getPredicates(builder, root, restriction, cursor))
+					.orderBy(getOrder(builder, root));
+			List<Object[]> keys = manager.createQuery(criteria).setMaxResults(pageSize).getResultList();
+			if (keys.isEmpty()) {
+				break;
+			}
+			Object[] last = keys.get(keys.size() - 1);
+			cursor = new Cursor(this.sortAttribute == null ? null : (String) last[0], (Integer) last[1]);
+			remember(current + 1, cursor);
+		}
+		return cursor;
+	}
+
+	private void remember(int page, Cursor cursor) {
+		while (this.cursors.size() <= page) {
+			this.cursors.add(null);
+		}
+		this.cursors.set(page, cursor);
+	}
+
+	private <T> Predicate[] getPredicates(CriteriaBuilder builder, Root<T> root, Restriction<T> restriction,
+			Cursor after) {
+
+		List<Predicate> predicatesList = new ArrayList<Predicate>(Arrays.asList(restriction.restrict(root)));
+		if (after != null) {
+			Predicate idAfter = builder.greaterThan(root.<Integer> get("id"), after.id);
+			if (this.sortAttribute == null) {
+				predicatesList.add(idAfter);
+			} else {
+				predicatesList.add(builder.or(
+						builder.greaterThan(root.<String> get(this.sortAttribute), after.sortValue),
+						builder.and(builder.equal(root.get(this.sortAttribute), after.sortValue), idAfter)));
+			}
+		}
+		return predicatesList.toArray(new Predicate[predicatesList.size()]);
+	}
+
+	private <T> List<Order> getOrder(CriteriaBuilder builder, Root<T> root) {
+
+		List<Order> order = new ArrayList<Order>();
+		if (this.sortAttribute != null) {
+			order.add(builder.asc(root.get(this.sortAttribute)));
+		}
+		order.add(builder.asc(root.get("id")));
+		return order;
+	}
+
+	/**
+	 * Builds the search predicates of a query.
+	 */
+	public interface Restriction<T> {
+		Predicate[] restrict(Root<T> root);
+	}
+
+	/**
+	 * Builds the selection of a row, e.g. the root itself.
+	 */
+	public interface Selector<T, R> {
+		Selection<? extends R> select(Root<T> root);
+	}
+
+	/**
+	 * Reads the key of a row.
+	 */
+	public interface KeyReader<R> {
+		Cursor read(R row);
+	}
+
+	/**
+	 * Key of a row, the sort value and the id.
+	 */
+	public static final class Cursor implements Serializable {
+
+		/**
+		 * Uniquely identify the version of a serializable.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		private final String sortValue;
+
+		private final Integer id;
+
+		public Cursor(String sortValue, Integer id) {
+			this.sortValue = sortValue;
+			this.id = id;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package org.el.ghostnetfishing.view;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Holder of the in-memory snapshot of an index singleton, built on first use.
+ * <p/>
+ * The singletons read their snapshot under <tt>&#64;Lock(READ)</tt> and
+ * apply events to it under <tt>&#64;Lock(WRITE)</tt>. The snapshot is built
+ * by the first reader needing it while the other readers go on: an
+ * outdated snapshot is served until its replacement is published through
+ * the volatile field, only without any snapshot readers wait for the build.
+ * As a build runs inside a read lock, no event is applied meanwhile.
+ */
+final class LazySnapshot<T> {
+
+	private final Supplier<T> loader;
+
+	/**
+	 * Current snapshot, null before the first build.
+	 */
+	private volatile T current;
+
+	/**
+	 * When setted, the current snapshot is replaced on the next read.
+	 */
+	private volatile boolean stale;
+
+	/**
+	 * Held by the reader building a snapshot.
+	 */
+	private final ReentrantLock building = new ReentrantLock();
+
+	/**
+	 * @param loader builds a new snapshot from the database.
+	 */
+	LazySnapshot(Supplier<T> loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * Returns the snapshot, builds it if there is none or it is outdated and no other reader builds it.
+	 * @return current snapshot.
+	 */
+	T get() {
+
+		T snapshot = this.current;
+		if (snapshot != null && !this.stale) {
+			return snapshot;
+		}
+		if (snapshot != null) {
+			if (!this.building.tryLock()) {
+				return snapshot;
+			}
+		} else {
+			this.building.lock();
+		}
+		try {
+			snapshot = this.current;
+			if (snapshot == null || this.stale) {
+				this.stale = false;
+				snapshot = this.loader.get();
+				this.current = snapshot;
+			}
+			return snapshot;
+		} finally {
+			this.building.unlock();
+		}
+	}
+
+	/**
+	 * Returns the snapshot without building it, for applying events.
+	 * @return current snapshot, or null if not built.
+	 */
+	T peek() {
+		return this.current;
+	}
+
+	/**
+	 * Replaces the snapshot, e.g. after a reconciliation.
+	 * @param snapshot new snapshot.
+	 */
+	void set(T snapshot) {
+		this.current = snapshot;
+		this.stale = false;
+	}
+
+	/**
+	 * Marks the snapshot for a rebuild on the next read, it is served until then.
+	 */
+	void markStale() {
+		this.stale = true;
+	}
+}
@@ -0,0 +1,193 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * MetricsRegistry keeps latency histograms of monitored methods and requests and the SQL statements per request.
+ * <p/>
+ * Histograms have fixed buckets and are updated without locks, so
+ * recording costs a few atomic increments. The metrics are written by the
+ * {@link MetricsServlet} in the Prometheus text format:
+ * <ul>
+ * <li>ghostnetfishing_method_duration_seconds by bean and method,</li>
+ * <li>ghostnetfishing_request_duration_seconds by path,</li>
+ * <li>ghostnetfishing_request_sql_statements by path,</li>
+ * <li>ghostnetfishing_sql_statements_total.</li>
+ * </ul>
+ */
+
+@ApplicationScoped
+public class MetricsRegistry {
+
+	private static final String PREFIX = "ghostnetfishing_";
+
+	/**
+	 * Upper bounds of the latency buckets in seconds.
+	 */
+	private static final double[] SECONDS_BUCKETS = { 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1,
+			2.5, 5, 10 };
+
+	/**
+	 * Upper bounds of the buckets of SQL statements per request.
+	 */
+	private static final double[] STATEMENT_BUCKETS = { 0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000 };
+
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	/**
+	 * Histograms of the method durations, keyed by their label set.
+	 */
+	private final ConcurrentMap<String, Histogram> methodDurations = new ConcurrentHashMap<String, Histogram>();
+
+	/**
+	 * Label sets of the monitored methods, built once per method.
+	 */
+	private final ConcurrentMap<Method, String> methodLabels = new ConcurrentHashMap<Method, String>();
+
+	/**
+	 * Histograms of the request durations, keyed by their label set.
+	 */
+	private final ConcurrentMap<String, Histogram> requestDurations = new ConcurrentHashMap<String, Histogram>();
+
+	/**
+	 * Histograms of the SQL statements per request, keyed by their label set.
+	 */
+	private final ConcurrentMap<String, Histogram> requestStatements = new ConcurrentHashMap<String, Histogram>();
+
+	/**
+	 * Records one call of a monitored method.
+	 * @param method called, labeled by the simple name of its class and its name.
+	 * @param nanos duration of the call.
+	 */
+	public void recordMethod(Method method, long nanos) {
+
+		String labels = this.methodLabels.get(method);
+		if (labels == null) {
+			labels = "bean=\"" + escape(method.getDeclaringClass().getSimpleName()) + "\",method=\""
+					+ escape(method.getName()) + "\"";
+			this.methodLabels.putIfAbsent(method, labels);
+		}
+		histogram(this.methodDurations, labels, SECONDS_BUCKETS).observe(nanos / NANOS_PER_SECOND);
+	}
+
+	/**
+	 * Records one request.
+	 * @param path label of the requested view or API path.
+	 * @param nanos duration of the request.
+	 * @param statements number of SQL statements of the request.
+	 */
+	public void recordRequest(String path, long nanos, int statements) {
+
+		String labels = "path=\"" + escape(path) + "\"";
+		histogram(this.requestDurations, labels, SECONDS_BUCKETS).observe(nanos / NANOS_PER_SECOND);
+		histogram(this.requestStatements, labels, STATEMENT_BUCKETS).observe(statements);
+	}
+
+	/**
+	 * Writes all metrics in the Prometheus text format.
+	 * @param writer receiving the metrics.
+	 * @throws IOException if the writer fails.
+	 */
+	public void write(Writer writer) throws IOException {
+
+		StringBuilder text = new StringBuilder();
+		writeHistograms(text, "method_duration_seconds", "Duration of monitored bean methods.", this.methodDurations);
+		writeHistograms(text, "request_duration_seconds", "Duration of page and API requests.",
+				this.requestDurations);
+		writeHistograms(text, "request_sql_statements", "SQL statements prepared by Hibernate per request.",
+				this.requestStatements);
+		text.append("# HELP ").append(PREFIX).append("sql_statements_total SQL statements prepared by Hibernate.\n");
+		text.append("# TYPE ").append(PREFIX).append("sql_statements_total counter\n");
+		text.append(PREFIX).append("sql_statements_total ").append(SqlStatementCounter.getTotal()).append('\n');
+		writer.write(text.toString());
+		writer.flush();
+	}
+
+	private static Histogram histogram(ConcurrentMap<String, Histogram> histograms, String labels, double[] buckets) {
+
+		Histogram histogram = histograms.get(labels);
+		if (histogram == null) {
+			Histogram created = new Histogram(buckets);
+			histogram = histograms.putIfAbsent(labels, created);
+			if (histogram == null) {
+				histogram = created;
+			}
+		}
+		return histogram;
+	}
+
+	private static void writeHistograms(StringBuilder text, String name, String help,
+			Map<String, Histogram> histograms) {
+
+		String metric = PREFIX + name;
+		text.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+		text.append("# TYPE ").append(metric).append(" histogram\n");
+
+		// sorted label sets keep the output stable between scrapes
+		for (Map.Entry<String, Histogram> entry : new TreeMap<String, Histogram>(histograms).entrySet()) {
+			entry.getValue().write(text, metric, entry.getKey());
+		}
+	}
+
+	/**
+	 * Escapes a label value of the text format.
+	 */
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	/**
+	 * Cumulative histogram with fixed upper bounds.
+	 */
+	private static final class Histogram {
+
+		private final double[] bounds;
+
+		/**
+		 * Observations per bucket, the last bucket counts values above all bounds.
+		 */
+		private final AtomicLongArray buckets;
+
+		private final DoubleAdder sum = new DoubleAdder();
+
+		Histogram(double[] bounds) {
+			this.bounds = bounds;
+			this.buckets = new AtomicLongArray(bounds.length + 1);
+		}
+
+		void observe(double value) {
+
+			int bucket = 0;
+			while (bucket < this.bounds.length && value > this.bounds[bucket]) {
+				bucket++;
+			}
+			this.buckets.incrementAndGet(bucket);
+			this.sum.add(value);
+		}
+
+		void write(StringBuilder text, String metric, String labels) {
+
+			long cumulative = 0;
+			for (int i = 0; i < this.bounds.length; i++) {
+				cumulative += this.buckets.get(i);
+				text.append(metric).append("_bucket{").append(labels).append(",le=\"").append(this.bounds[i])
+						.append("\"} ").append(cumulative).append('\n');
+			}
+			cumulative += this.buckets.get(this.bounds.length);
+			text.append(metric).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(cumulative)
+					.append('\n');
+			text.append(metric).append("_sum{").append(labels).append("} ").append(this.sum.sum()).append('\n');
+			text.append(metric).append("_count{").append(labels).append("} ").append(cumulative).append('\n');
+		}
+	}
+}
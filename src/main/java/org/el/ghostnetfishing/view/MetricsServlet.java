@@ -0,0 +1,34 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Scrape endpoint with the metrics of the {@link MetricsRegistry} in the Prometheus text format 0.0.4.
+ */
+
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	@Inject
+	private MetricsRegistry registry;
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+		response.setContentType("text/plain; version=0.0.4");
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Cache-Control", "no-store");
+		this.registry.write(response.getWriter());
+	}
+}
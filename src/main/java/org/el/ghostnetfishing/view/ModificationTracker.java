@@ -0,0 +1,65 @@
+package org.el.ghostnetfishing.view;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+
+/**
+ * ModificationTracker remembers when entities of a type were written last.
+ * <p/>
+ * Used for the validators of HTTP caching (ETag and Last-Modified). Types
+ * without a recorded write report the start of the application, so a
+ * restart never claims older data than a client may have.
+ */
+
+@ApplicationScoped
+public class ModificationTracker {
+
+	/**
+	 * Start of the application in milliseconds.
+	 */
+	private final long startTime = System.currentTimeMillis();
+
+	/**
+	 * Time of the last successful write per entity type in milliseconds.
+	 */
+	private final ConcurrentMap<Class<?>, Long> lastModified = new ConcurrentHashMap<Class<?>, Long>();
+
+	/**
+	 * Records the time, after entities are written successfully.
+	 * @param event about the written entities.
+	 */
+	public void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangedEvent event) {
+
+		// strictly increasing, so two writes in the same millisecond still change the validators
+		long now = System.currentTimeMillis();
+		Long previous = this.lastModified.putIfAbsent(event.getEntityType(), now);
+		while (previous != null) {
+			long next = Math.max(now, previous + 1);
+			if (this.lastModified.replace(event.getEntityType(), previous, next)) {
+				break;
+			}
+			previous = this.lastModified.get(event.getEntityType());
+		}
+	}
+
+	/**
+	 * Returns the time of the last write of any of the given types.
+	 * @param types of entities.
+	 * @return time in milliseconds.
+	 */
+	public long getLastModified(Class<?>... types) {
+
+		long result = this.startTime;
+		for (Class<?> type : types) {
+			Long modified = this.lastModified.get(type);
+			if (modified != null && modified > result) {
+				result = modified;
+			}
+		}
+		return result;
+	}
+}
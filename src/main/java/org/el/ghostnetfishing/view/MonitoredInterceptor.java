@@ -0,0 +1,41 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.Serializable;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+
+/**
+ * MonitoredInterceptor records the latency of every {@link Monitored} method in the {@link MetricsRegistry}.
+ * <p/>
+ * Calls ending with an exception are recorded as well. Calls of a bean
+ * to its own methods don't pass the interceptor and are not recorded.
+ */
+
+@Monitored
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class MonitoredInterceptor implements Serializable {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	@Inject
+	private MetricsRegistry registry;
+
+	@AroundInvoke
+	public Object record(InvocationContext context) throws Exception {
+
+		long start = System.nanoTime();
+		try {
+			return context.proceed();
+		} finally {
+			this.registry.recordMethod(context.getMethod(), System.nanoTime() - start);
+		}
+	}
+}
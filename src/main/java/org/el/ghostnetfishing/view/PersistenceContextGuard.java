@@ -0,0 +1,199 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+
+/**
+ * PersistenceContextGuard keeps the EXTENDED persistence contexts of the backing beans small.
+ * <p/>
+ * The list views read projections or reference data only, so the rows of a
+ * page need not stay managed and the context of a bean is cleared after
+ * every paginate. A conversation lives up to half an hour and must not
+ * collect entities without limit, so before a bean loads the entity of a
+ * conversation, the context is cleared when it holds more managed entities
+ * than the configured maximum. Contexts with unflushed changes are never
+ * cleared. The sizes seen per bean are kept as metrics. The beans reach
+ * the guard through their {@link SearchPages}.
+ */
+
+@Named
+@ApplicationScoped
+public class PersistenceContextGuard {
+
+	/**
+	 * Maximum number of managed entities per persistence context.
+	 * Configured by the env-entry persistenceContext/maxManagedEntities in web.xml.
+	 */
+	@Resource(name = "persistenceContext/maxManagedEntities")
+	private Integer maxManagedEntities = 1000;
+
+	/**
+	 * Metrics per bean class.
+	 */
+	private final ConcurrentMap<String, ContextStatistics> statistics = new ConcurrentHashMap<String, ContextStatistics>();
+
+	/**
+	 * Clears the context after a page is read.
+	 * @param manager is the EXTENDED entity manager of the bean.
+	 * @param owner class of the bean.
+	 */
+	public void afterPaginate(EntityManager manager, Class<?> owner) {
+		release(manager, owner, true);
+	}
+
+	/**
+	 * Clears the context, if it holds more managed entities than allowed.
+	 * @param manager is the EXTENDED entity manager of the bean.
+	 * @param owner class of the bean.
+	 */
+	public void enforceLimit(EntityManager manager, Class<?> owner) {
+		release(manager, owner, false);
+	}
+
+	public int getMaxManagedEntities() {
+		return this.maxManagedEntities;
+	}
+
+	/**
+	 * Returns the metrics of all beans, ordered by bean name.
+	 * @return list of statistics.
+	 */
+	public List<ContextStatistics> getStatistics() {
+		return new ArrayList<ContextStatistics>(new TreeMap<String, ContextStatistics>(this.statistics).values());
+	}
+
+	private void release(EntityManager manager, Class<?> owner, boolean always) {
+
+		Session session = manager.unwrap(Session.class);
+		int managed = session.getStatistics().getEntityCount();
+		ContextStatistics metrics = statisticsOf(owner);
+		metrics.record(managed);
+
+		if (managed == 0 || !always && managed <= this.maxManagedEntities) {
+			return;
+		}
+		if (session.isDirty()) {
+			metrics.skipped.incrementAndGet();
+			return;
+		}
+		manager.clear();
+		metrics.cleared.incrementAndGet();
+		metrics.released.addAndGet(managed);
+	}
+
+	private ContextStatistics statisticsOf(Class<?> owner) {
+
+		String name = owner.getSimpleName();
+		ContextStatistics metrics = this.statistics.get(name);
+		if (metrics == null) {
+			ContextStatistics created = new ContextStatistics(name);
+			metrics = this.statistics.putIfAbsent(name, created);
+			if (metrics == null) {
+				metrics = created;
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * Metrics of the persistence contexts of one bean class.
+	 */
+	public static class ContextStatistics implements Serializable {
+
+		/**
+		 * Uniquely identify the version of a serializable.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		private final String name;
+
+		/**
+		 * Number of checks.
+		 */
+		private final AtomicLong checks = new AtomicLong();
+
+		/**
+		 * Sum of the managed entities of all checks.
+		 */
+		private final AtomicLong managedSum = new AtomicLong();
+
+		/**
+		 * Largest number of managed entities seen.
+		 */
+		private final AtomicLong peak = new AtomicLong();
+
+		/**
+		 * Number of cleared contexts.
+		 */
+		private final AtomicLong cleared = new AtomicLong();
+
+		/**
+		 * Number of entities detached by clearing.
+		 */
+		private final AtomicLong released = new AtomicLong();
+
+		/**
+		 * Number of contexts not cleared because of unflushed changes.
+		 */
+		private final AtomicLong skipped = new AtomicLong();
+
+		ContextStatistics(String name) {
+			this.name = name;
+		}
+
+		void record(int managed) {
+
+			this.checks.incrementAndGet();
+			this.managedSum.addAndGet(managed);
+			long current = this.peak.get();
+			while (managed > current && !this.peak.compareAndSet(current, managed)) {
+				current = this.peak.get();
+			}
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public long getChecks() {
+			return this.checks.get();
+		}
+
+		public long getPeak() {
+			return this.peak.get();
+		}
+
+		public long getCleared() {
+			return this.cleared.get();
+		}
+
+		public long getReleased() {
+			return this.released.get();
+		}
+
+		public long getSkipped() {
+			return this.skipped.get();
+		}
+
+		/**
+		 * Average number of managed entities per check.
+		 * @return average, 0 without checks.
+		 */
+		public double getAverage() {
+			long count = this.checks.get();
+			return count == 0 ? 0 : (double) this.managedSum.get() / count;
+		}
+	}
+}
@@ -2,15 +2,14 @@ package org.el.ghostnetfishing.view;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
-import javax.annotation.Resource;
-import javax.ejb.SessionContext;
 import javax.ejb.Stateful;
 import javax.enterprise.context.Conversation;
 import javax.enterprise.context.ConversationScoped;
+import javax.enterprise.event.Event;
 import javax.faces.application.FacesMessage;
-import javax.faces.component.UIComponent;
 import javax.faces.context.FacesContext;
 import javax.faces.convert.Converter;
 import javax.inject.Inject;
@@ -18,18 +17,15 @@ import javax.inject.Named;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
-import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
-import org.el.ghostnetfishing.model.Fishnet;
 import org.el.ghostnetfishing.model.Person;
+import org.el.ghostnetfishing.model.PersonRow;
 import org.el.ghostnetfishing.model.PersonType;
 
-import java.util.Iterator;
-
 /**
  * Backing bean for Person entities.
  * <p/>
@@ -151,6 +147,18 @@ public class PersonBean implements Serializable {
 	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit", type = PersistenceContextType.EXTENDED)
 	private EntityManager entityManager;
 
+	/**
+	 * Search state of the bean.
+	 */
+	@Inject
+	private SearchPages pages;
+
+	/**
+	 * Notifies caches about written Person entities.
+	 */
+	@Inject
+	private Event<EntityChangedEvent> entityChanged;
+
 	/**
 	 * Creates a new session for conversation.
 	 * @return redirect to Person create mask.
@@ -177,6 +185,8 @@ public class PersonBean implements Serializable {
 			this.conversation.setTimeout(1800000L);
 		}
 
+		this.pages.enforceLimit(this.entityManager);
+
 		if (this.id == null) {
 			this.person = this.example;
 			
@@ -214,6 +224,7 @@ public class PersonBean implements Serializable {
 	 * if exists do an update on the exists entity.
 	 * @return a redirecting path or null on error.
 	 */
+	@Monitored
 	public String update() {
 		this.conversation.end();
 		
@@ -243,6 +254,7 @@ public class PersonBean implements Serializable {
 		try {
 			if (this.id == null) {
 				this.entityManager.persist(this.person);
+				this.entityChanged.fire(new PersonChangedEvent(this.person));
 				
 				// if the persontype is a recoverer, redirect to the index.xhtml
 				if(personType == PERSON_TYPE_RECOVER){
@@ -254,6 +266,7 @@ public class PersonBean implements Serializable {
 				}
 			} else {
 				this.entityManager.merge(this.person);
+				this.entityChanged.fire(new PersonChangedEvent(this.person));
 				return "create?faces-redirect=true&id=" + this.person.getId();
 			}
 		} catch (Exception e) {
@@ -267,38 +280,16 @@ public class PersonBean implements Serializable {
 	 * Deletes current Person object and references to relevant objects.
 	 * @return a redirecting path or null on error.
 	 */
+	@Monitored
 	public String delete() {
 		this.conversation.end();
 
 		try {
-			Person deletableEntity = findById(getId());
-			PersonType personType = deletableEntity.getPersonType();
-			personType.getPersons().remove(deletableEntity);
-			deletableEntity.setPersonType(null);
-			this.entityManager.merge(personType);
-			Iterator<Fishnet> iterFishnetsForSalvagingPersonId = deletableEntity
-					.getFishnetsForSalvagingPersonId().iterator();
-			for (; iterFishnetsForSalvagingPersonId.hasNext();) {
-				Fishnet nextInFishnetsForSalvagingPersonId = iterFishnetsForSalvagingPersonId
-						.next();
-				nextInFishnetsForSalvagingPersonId
-				.setPersonBySalvagingPersonId(null);
-				iterFishnetsForSalvagingPersonId.remove();
-				this.entityManager.merge(nextInFishnetsForSalvagingPersonId);
+			// fishnets and queued reports of the person are kept, their reference is removed
+			if (EntityDeletes.deletePerson(this.entityManager, getId())) {
+				this.entityChanged.fire(new PersonChangedEvent(getId()));
+				this.entityChanged.fire(new FishnetsDetachedEvent(getId()));
 			}
-			Iterator<Fishnet> iterFishnetsForRecoveryMessagingPersonId = deletableEntity
-					.getFishnetsForRecoveryMessagingPersonId().iterator();
-			for (; iterFishnetsForRecoveryMessagingPersonId.hasNext();) {
-				Fishnet nextInFishnetsForRecoveryMessagingPersonId = iterFishnetsForRecoveryMessagingPersonId
-						.next();
-				nextInFishnetsForRecoveryMessagingPersonId
-				.setPersonByRecoveryMessagingPersonId(null);
-				iterFishnetsForRecoveryMessagingPersonId.remove();
-				this.entityManager
-				.merge(nextInFishnetsForRecoveryMessagingPersonId);
-			}
-			this.entityManager.remove(deletableEntity);
-			this.entityManager.flush();
 			return "search?faces-redirect=true";
 		} catch (Exception e) {
 			FacesContext.getCurrentInstance().addMessage(null,
@@ -312,37 +303,29 @@ public class PersonBean implements Serializable {
 	 */
 
 	/**
-	 * Page position.
+	 * Finds persons by parts of name and telephone number without scanning the table.
 	 */
-	private int page;
-	
-	/**
-	 * Page counter.
-	 */
-	private long count;
+	@Inject
+	private PersonSearchIndex searchIndex;
 	
 	/**
 	 * List of person objects.
 	 */
-	private List<Person> pageItems;
+	private List<PersonRow> pageItems;
 
 	/**
 	 * Used as search parameter in search view.
 	 */
 	private Person example = new Person();
 
-	public int getPage() {
-		return this.page;
-	}
-
-	public void setPage(int page) {
-		this.page = page;
-	}
-
 	public int getPageSize() {
 		return 10;
 	}
 
+	public SearchPages getPages() {
+		return this.pages;
+	}
+
 	public Person getExample() {
 		return this.example;
 	}
@@ -356,35 +339,68 @@ public class PersonBean implements Serializable {
 	 * @return null.
 	 */
 	public String search() {
-		this.page = 0;
+		this.pages.reset();
 		return null;
 	}
 
 	/**
 	 * When the user paginates through the page, it retrieves data for display a list of items on the page.
 	 */
+	@Monitored
 	public void paginate() {
 
-		CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
+		String name = this.example.getName();
+		String telephoneNumber = this.example.getTelephoneNumber();
+		if (!isEmpty(name) || !isEmpty(telephoneNumber)) {
+			paginateMatches(name, telephoneNumber);
+			this.pages.afterPaginate(this.entityManager);
+			return;
+		}
 
-		// Populate this.count
+		// Populate the count, counted once per search until persons are written
 
-		CriteriaQuery<Long> countCriteria = builder.createQuery(Long.class);
-		Root<Person> root = countCriteria.from(Person.class);
-		countCriteria = countCriteria.select(builder.count(root)).where(
-				getSearchPredicates(root));
-		this.count = this.entityManager.createQuery(countCriteria)
-				.getSingleResult();
+		this.pages.count(Person.class, getSearchKey(), () -> {
+			CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
+			CriteriaQuery<Long> countCriteria = builder.createQuery(Long.class);
+			Root<Person> root = countCriteria.from(Person.class);
+			return this.entityManager.createQuery(countCriteria.select(builder.count(root))
+					.where(getSearchPredicates(root))).getSingleResult();
+		});
 
-		// Populate this.pageItems
+		// Populate this.pageItems, seeking behind the last row of the previous page
 
-		CriteriaQuery<Person> criteria = builder.createQuery(Person.class);
-		root = criteria.from(Person.class);
-		TypedQuery<Person> query = this.entityManager.createQuery(criteria
-				.select(root).where(getSearchPredicates(root)));
-		query.setFirstResult(this.page * getPageSize()).setMaxResults(
+		CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
+		this.pageItems = this.pages.paginate(this.entityManager, "name", Person.class, PersonRow.class,
+				root -> builder.construct(PersonRow.class, root.get("id"), root.get("name"), root.get("telephoneNumber")),
+				this::getSearchPredicates, row -> new KeysetPaginator.Cursor(row.getName(), row.getId()),
 				getPageSize());
-		this.pageItems = query.getResultList();
+	}
+
+	/**
+	 * Takes the count and the current page from the ids matched by the search index.
+	 * @param name part of the name.
+	 * @param telephoneNumber part of the telephone number.
+	 */
+	private void paginateMatches(String name, String telephoneNumber) {
+
+		PersonType personType = this.example.getPersonType();
+		List<Integer> matches = this.searchIndex.find(name, telephoneNumber,
+				personType == null ? null : personType.getId());
+		int from = Math.min(this.pages.getPage() * getPageSize(), matches.size());
+		int to = Math.min(from + getPageSize(), matches.size());
+		this.pages.matched(matches.size(), to < matches.size());
+		List<Integer> ids = new ArrayList<Integer>(matches.subList(from, to));
+		if (ids.isEmpty()) {
+			this.pageItems = new ArrayList<PersonRow>();
+			return;
+		}
+
+		// the rows are read by id and shown in the order of the index
+		this.pageItems = this.entityManager.createQuery("select new org.el.ghostnetfishing.model.PersonRow(p.id,"
+				+ " p.name, p.telephoneNumber) from Person p where p.id in :ids", PersonRow.class)
+				.setParameter("ids", ids)
+				.getResultList();
+		this.pageItems.sort(Comparator.comparingInt(row -> ids.indexOf(row.getId())));
 	}
 
 	/**
@@ -402,27 +418,26 @@ public class PersonBean implements Serializable {
 			predicatesList
 			.add(builder.equal(root.get("personType"), personType));
 		}
-		String name = this.example.getName();
-		if (name != null && !"".equals(name)) {
-			predicatesList.add(builder.like(
-					builder.lower(root.<String> get("name")),
-					'%' + name.toLowerCase() + '%'));
-		}
-		String telephoneNumber = this.example.getTelephoneNumber();
-		if (telephoneNumber != null && !"".equals(telephoneNumber)) {
-			predicatesList.add(builder.like(
-					builder.lower(root.<String> get("telephoneNumber")),
-					'%' + telephoneNumber.toLowerCase() + '%'));
-		}
 		return predicatesList.toArray(new Predicate[predicatesList.size()]);
 	}
 
-	public List<Person> getPageItems() {
+	/**
+	 * Returns the search predicates normalized as key of the {@link CountCache}.
+	 * @return search key, empty for an unfiltered search.
+	 */
+	private String getSearchKey() {
+
+		PersonType personType = this.example.getPersonType();
+		return CountCache.searchKey("personType", personType == null ? null : personType.getId(),
+				"name", this.example.getName(), "telephoneNumber", this.example.getTelephoneNumber());
+	}
+
+	public List<PersonRow> getPageItems() {
 		return this.pageItems;
 	}
 
-	public long getCount() {
-		return this.count;
+	private static boolean isEmpty(String value) {
+		return value == null || value.trim().isEmpty();
 	}
 
 	/*
@@ -442,38 +457,18 @@ public class PersonBean implements Serializable {
 				criteria.select(criteria.from(Person.class))).getResultList();
 	}
 
-	@Resource
-	private SessionContext sessionContext;
+	/**
+	 * Application wide converter with a cache of Person entities.
+	 */
+	@Inject
+	private PersonConverter converter;
 
 	/**
 	 * Converts an object to a String for displaying it as dataset.
-	 * @return object as string.
+	 * @return the shared converter of Person entities.
 	 */
 	public Converter getConverter() {
-
-		final PersonBean ejbProxy = this.sessionContext
-				.getBusinessObject(PersonBean.class);
-
-		return new Converter() {
-
-			@Override
-			public Object getAsObject(FacesContext context,
-					UIComponent component, String value) {
-
-				return ejbProxy.findById(Integer.valueOf(value));
-			}
-
-			@Override
-			public String getAsString(FacesContext context,
-					UIComponent component, Object value) {
-
-				if (value == null) {
-					return "";
-				}
-
-				return String.valueOf(((Person) value).getId());
-			}
-		};
+		return this.converter;
 	}
 
 	/**
@@ -0,0 +1,80 @@
+package org.el.ghostnetfishing.view;
+
+import org.el.ghostnetfishing.model.Person;
+
+/**
+ * CDI event fired, when a single person is created, changed or deleted.
+ * <p/>
+ * Carries the searchable values after the write, so that the
+ * {@link PersonSearchIndex} can update one entry instead of reloading.
+ * A plain EntityChangedEvent for Person means an unknown set of persons changed.
+ */
+public class PersonChangedEvent extends EntityChangedEvent {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final int id;
+
+	private final String name;
+
+	private final String telephoneNumber;
+
+	/**
+	 * Id of the person type, null without type.
+	 */
+	private final Integer personTypeId;
+
+	/**
+	 * When setted, the person is deleted.
+	 */
+	private final boolean deleted;
+
+	/**
+	 * Event of a created or changed person.
+	 * @param person after the write, with id.
+	 */
+	public PersonChangedEvent(Person person) {
+		super(Person.class);
+		this.id = person.getId();
+		this.name = person.getName();
+		this.telephoneNumber = person.getTelephoneNumber();
+		this.personTypeId = person.getPersonType() == null ? null : person.getPersonType().getId();
+		this.deleted = false;
+	}
+
+	/**
+	 * Event of a deleted person.
+	 * @param id of the deleted person.
+	 */
+	public PersonChangedEvent(int id) {
+		super(Person.class);
+		this.id = id;
+		this.name = null;
+		this.telephoneNumber = null;
+		this.personTypeId = null;
+		this.deleted = true;
+	}
+
+	public int getId() {
+		return this.id;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public String getTelephoneNumber() {
+		return this.telephoneNumber;
+	}
+
+	public Integer getPersonTypeId() {
+		return this.personTypeId;
+	}
+
+	public boolean isDeleted() {
+		return this.deleted;
+	}
+}
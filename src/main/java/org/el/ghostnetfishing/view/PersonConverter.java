@@ -0,0 +1,50 @@
+package org.el.ghostnetfishing.view;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.el.ghostnetfishing.model.Person;
+
+/**
+ * PersonConverter converts Person entities for select components of all views.
+ */
+
+@Named
+@ApplicationScoped
+public class PersonConverter extends EntityConverter<Person> {
+
+	/**
+	 * Loading entity manager with unit name ghostNetFishing-persistence-unit.
+	 */
+	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit")
+	private EntityManager entityManager;
+
+	/**
+	 * Drops the cached entities, after Person entities are written successfully.
+	 * @param event about the written entities.
+	 */
+	public void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangedEvent event) {
+		if (event.concerns(Person.class)) {
+			invalidate();
+		}
+	}
+
+	@Override
+	protected Class<Person> getType() {
+		return Person.class;
+	}
+
+	@Override
+	protected Integer getId(Person entity) {
+		return entity.getId();
+	}
+
+	@Override
+	protected Person load(Integer id) {
+		return this.entityManager.find(Person.class, id);
+	}
+}
@@ -0,0 +1,320 @@
+package org.el.ghostnetfishing.view;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.el.ghostnetfishing.model.Person;
+
+/**
+ * PersonSearchIndex finds persons by parts of their name or telephone number.
+ * <p/>
+ * Names and telephone numbers are kept in memory, normalized, with an
+ * inverted index from every trigram to the persons containing it. A search
+ * intersects the postings of the trigrams of the searched text and checks
+ * only the remaining candidates, so it doesn't scan the whole register.
+ * Names are compared in lower case without diacritics, telephone numbers
+ * by their digits only, with a leading + taken as 00. Every search is
+ * answered by the index, however many persons match, so broad and narrow
+ * searches compare alike.
+ * <p/>
+ * Like the {@link FishnetProximityIndex}, the index is built on first use
+ * and read under a read lock, only applying a {@link PersonChangedEvent}
+ * takes the write lock.
+ */
+
+@Singleton
+@Lock(LockType.READ)
+public class PersonSearchIndex {
+
+	/**
+	 * Number of persons read per query while building.
+	 */
+	private static final int BUILD_CHUNK_SIZE = 10000;
+
+	private static final int GRAM_LENGTH = 3;
+
+	/**
+	 * Loading entity manager with unit name ghostNetFishing-persistence-unit.
+	 */
+	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit")
+	private EntityManager entityManager;
+
+	/**
+	 * Entries and postings, changed only under the write lock.
+	 */
+	private final LazySnapshot<Index> index = new LazySnapshot<Index>(this::build);
+
+	/**
+	 * Finds the persons, whose name and telephone number contain the given parts.
+	 * @param name part of the name, null or empty for any name.
+	 * @param telephoneNumber part of the telephone number, null or empty for any number.
+	 * @param personTypeId id of the person type, null for any type.
+	 * @return ids of the matching persons, ordered by normalized name and id.
+	 */
+	public List<Integer> find(String name, String telephoneNumber, Integer personTypeId) {
+
+		Index index = this.index.get();
+		String normalizedName = isEmpty(name) ? null : normalizeName(name);
+		String normalizedTelephone = isEmpty(telephoneNumber) ? null : normalizeTelephoneNumber(telephoneNumber);
+		if (normalizedTelephone != null && normalizedTelephone.isEmpty()) {
+
+			// a number without digits matches no person
+			return Collections.emptyList();
+		}
+
+		List<Set<Integer>> postings = new ArrayList<Set<Integer>>();
+		if (!addPostings(postings, index.nameGrams, normalizedName)
+				|| !addPostings(postings, index.telephoneGrams, normalizedTelephone)) {
+			return Collections.emptyList();
+		}
+
+		// short parts have no trigrams, then all persons are candidates
+		Set<Integer> candidates;
+		if (postings.isEmpty()) {
+			candidates = index.entries.keySet();
+		} else {
+			Collections.sort(postings, Comparator.comparingInt(Set::size));
+			candidates = postings.get(0);
+		}
+
+		List<Integer> matches = new ArrayList<Integer>();
+		for (Integer id : candidates) {
+			if (!isInAll(postings, id)) {
+				continue;
+			}
+			Entry entry = index.entries.get(id);
+			if ((normalizedName == null || entry.name.contains(normalizedName))
+					&& (normalizedTelephone == null || entry.telephoneNumber.contains(normalizedTelephone))
+					&& (personTypeId == null || personTypeId.equals(entry.personTypeId))) {
+				matches.add(id);
+			}
+		}
+		Collections.sort(matches, Comparator.<Integer, String> comparing(id -> index.entries.get(id).name)
+				.thenComparing(Comparator.naturalOrder()));
+		return matches;
+	}
+
+	/**
+	 * Applies the changes of persons after the transaction succeeded.
+	 * @param event about the written entities.
+	 */
+	@Lock(LockType.WRITE)
+	public void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangedEvent event) {
+
+		Index index = this.index.peek();
+		if (index == null) {
+			return;
+		}
+		if (event instanceof PersonChangedEvent) {
+			PersonChangedEvent change = (PersonChangedEvent) event;
+			index.remove(change.getId());
+			if (!change.isDeleted()) {
+				index.add(change.getId(), change.getName(), change.getTelephoneNumber(), change.getPersonTypeId());
+			}
+		} else if (event.concerns(Person.class)) {
+			this.index.markStale();
+		}
+	}
+
+	/**
+	 * Normalizes a name for comparing, lower case without diacritics.
+	 * @param name to normalize.
+	 * @return normalized name.
+	 */
+	public static String normalizeName(String name) {
+		return Normalizer.normalize(name.trim(), Normalizer.Form.NFD).replaceAll("\\p{M}", "")
+				.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Normalizes a telephone number for comparing, its digits with a leading + as 00.
+	 * @param telephoneNumber to normalize.
+	 * @return normalized number, empty without digits.
+	 */
+	public static String normalizeTelephoneNumber(String telephoneNumber) {
+
+		String trimmed = telephoneNumber.trim();
+		StringBuilder digits = new StringBuilder(trimmed.length() + 1);
+		if (trimmed.startsWith("+")) {
+			digits.append("00");
+		}
+		for (int i = 0; i < trimmed.length(); i++) {
+			char c = trimmed.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digits.append(c);
+			}
+		}
+		return digits.toString();
+	}
+
+	/**
+	 * Builds the index from the database, reading the persons in chunks ordered by id.
+	 */
+	private Index build() {
+
+		Index index = new Index();
+		int after = 0;
+		while (true) {
+			List<Object[]> rows = this.entityManager.createQuery(
+					"select p.id, p.name, p.telephoneNumber, t.id from Person p left join p.personType t"
+							+ " where p.id > :after order by p.id",
+					Object[].class)
+					.setParameter("after", after)
+					.setMaxResults(BUILD_CHUNK_SIZE)
+					.getResultList();
+			for (Object[] row : rows) {
+				index.add((Integer) row[0], (String) row[1], (String) row[2], (Integer) row[3]);
+			}
+			if (rows.size() < BUILD_CHUNK_SIZE) {
+				break;
+			}
+			after = (Integer) rows.get(rows.size() - 1)[0];
+		}
+		return index;
+	}
+
+	/**
+	 * Adds the postings of all trigrams of a part.
+	 * @return false, if a trigram occurs in no person.
+	 */
+	private static boolean addPostings(List<Set<Integer>> postings, Map<String, Set<Integer>> grams, String part) {
+
+		if (part == null) {
+			return true;
+		}
+		for (String gram : grams(part)) {
+			Set<Integer> ids = grams.get(gram);
+			if (ids == null) {
+				return false;
+			}
+			postings.add(ids);
+		}
+		return true;
+	}
+
+	private static boolean isInAll(List<Set<Integer>> postings, Integer id) {
+
+		for (int i = 1; i < postings.size(); i++) {
+			if (!postings.get(i).contains(id)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void addPosting(Map<String, Set<Integer>> grams, String gram, int id) {
+
+		Set<Integer> ids = grams.get(gram);
+		if (ids == null) {
+			ids = new HashSet<Integer>(4);
+			grams.put(gram, ids);
+		}
+		ids.add(id);
+	}
+
+	private static void removePosting(Map<String, Set<Integer>> grams, String gram, int id) {
+
+		Set<Integer> ids = grams.get(gram);
+		if (ids != null && ids.remove(id) && ids.isEmpty()) {
+			grams.remove(gram);
+		}
+	}
+
+	/**
+	 * Returns the distinct trigrams of a normalized value.
+	 */
+	private static Set<String> grams(String value) {
+
+		Set<String> grams = new HashSet<String>();
+		for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+			grams.add(value.substring(i, i + GRAM_LENGTH));
+		}
+		return grams;
+	}
+
+	private static boolean isEmpty(String value) {
+		return value == null || value.trim().isEmpty();
+	}
+
+	/**
+	 * Normalized values and postings of all persons.
+	 */
+	private static final class Index {
+
+		/**
+		 * Normalized values per person id.
+		 */
+		private final Map<Integer, Entry> entries = new HashMap<Integer, Entry>();
+
+		/**
+		 * Ids of the persons per trigram of the normalized name.
+		 */
+		private final Map<String, Set<Integer>> nameGrams = new HashMap<String, Set<Integer>>();
+
+		/**
+		 * Ids of the persons per trigram of the normalized telephone number.
+		 */
+		private final Map<String, Set<Integer>> telephoneGrams = new HashMap<String, Set<Integer>>();
+
+		void add(int id, String name, String telephoneNumber, Integer personTypeId) {
+
+			Entry entry = new Entry(name == null ? "" : normalizeName(name),
+					telephoneNumber == null ? "" : normalizeTelephoneNumber(telephoneNumber), personTypeId);
+			this.entries.put(id, entry);
+			for (String gram : grams(entry.name)) {
+				addPosting(this.nameGrams, gram, id);
+			}
+			for (String gram : grams(entry.telephoneNumber)) {
+				addPosting(this.telephoneGrams, gram, id);
+			}
+		}
+
+		void remove(int id) {
+
+			Entry entry = this.entries.remove(id);
+			if (entry == null) {
+				return;
+			}
+			for (String gram : grams(entry.name)) {
+				removePosting(this.nameGrams, gram, id);
+			}
+			for (String gram : grams(entry.telephoneNumber)) {
+				removePosting(this.telephoneGrams, gram, id);
+			}
+		}
+	}
+
+	/**
+	 * Normalized name and telephone number and the person type of one person.
+	 */
+	private static final class Entry {
+
+		private final String name;
+
+		private final String telephoneNumber;
+
+		private final Integer personTypeId;
+
+		Entry(String name, String telephoneNumber, Integer personTypeId) {
+			this.name = name;
+			this.telephoneNumber = telephoneNumber;
+			this.personTypeId = personTypeId;
+		}
+	}
+}
@@ -4,13 +4,11 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.annotation.Resource;
-import javax.ejb.SessionContext;
 import javax.ejb.Stateful;
 import javax.enterprise.context.Conversation;
 import javax.enterprise.context.ConversationScoped;
+import javax.enterprise.event.Event;
 import javax.faces.application.FacesMessage;
-import javax.faces.component.UIComponent;
 import javax.faces.context.FacesContext;
 import javax.faces.convert.Converter;
 import javax.inject.Inject;
@@ -18,7 +16,6 @@ import javax.inject.Named;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
-import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
@@ -27,8 +24,6 @@ import javax.persistence.criteria.Root;
 import org.el.ghostnetfishing.model.Person;
 import org.el.ghostnetfishing.model.PersonType;
 
-import java.util.Iterator;
-
 /**
  * Backing bean for PersonType entities.
  * <p/>
@@ -82,6 +77,18 @@ public class PersonTypeBean implements Serializable {
 	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit", type = PersistenceContextType.EXTENDED)
 	private EntityManager entityManager;
 
+	/**
+	 * Search state of the bean.
+	 */
+	@Inject
+	private SearchPages pages;
+
+	/**
+	 * Notifies caches about written PersonType entities.
+	 */
+	@Inject
+	private Event<EntityChangedEvent> entityChanged;
+
 	/**
 	 * Creates a new session for conversation.
 	 * @return redirect to PersonType create mask.
@@ -108,6 +115,8 @@ public class PersonTypeBean implements Serializable {
 			this.conversation.setTimeout(1800000L);
 		}
 
+		this.pages.enforceLimit(this.entityManager);
+
 		if (this.id == null) {
 			this.personType = this.example;
 		} else {
@@ -134,15 +143,18 @@ public class PersonTypeBean implements Serializable {
 	 * if exists do an update on the exists entity.
 	 * @return a redirecting path or null on error.
 	 */
+	@Monitored
 	public String update() {
 		this.conversation.end();
 
 		try {
 			if (this.id == null) {
 				this.entityManager.persist(this.personType);
+				this.entityChanged.fire(new EntityChangedEvent(PersonType.class));
 				return "search?faces-redirect=true";
 			} else {
 				this.entityManager.merge(this.personType);
+				this.entityChanged.fire(new EntityChangedEvent(PersonType.class));
 				return "view?faces-redirect=true&id=" + this.personType.getId();
 			}
 		} catch (Exception e) {
@@ -156,21 +168,16 @@ public class PersonTypeBean implements Serializable {
 	 * Deletes current PersonType object and references to relevant objects.
 	 * @return a redirecting path or null on error.
 	 */
+	@Monitored
 	public String delete() {
 		this.conversation.end();
 
 		try {
-			PersonType deletableEntity = findById(getId());
-			Iterator<Person> iterPersons = deletableEntity.getPersons()
-					.iterator();
-			for (; iterPersons.hasNext();) {
-				Person nextInPersons = iterPersons.next();
-				nextInPersons.setPersonType(null);
-				iterPersons.remove();
-				this.entityManager.merge(nextInPersons);
+			// persons of the type are kept without type
+			if (EntityDeletes.deletePersonType(this.entityManager, getId())) {
+				this.entityChanged.fire(new EntityChangedEvent(PersonType.class));
+				this.entityChanged.fire(new EntityChangedEvent(Person.class));
 			}
-			this.entityManager.remove(deletableEntity);
-			this.entityManager.flush();
 			return "search?faces-redirect=true";
 		} catch (Exception e) {
 			FacesContext.getCurrentInstance().addMessage(null,
@@ -183,16 +190,6 @@ public class PersonTypeBean implements Serializable {
 	 * Support searching PersonType entities with pagination.
 	 */
 
-	/**
-	 * Page position.
-	 */
-	private int page;
-	
-	/**
-	 * Page counter.
-	 */
-	private long count;
-	
 	/**
 	 * List of PersonType objects.
 	 */
@@ -203,18 +200,14 @@ public class PersonTypeBean implements Serializable {
 	 */
 	private PersonType example = new PersonType();
 
-	public int getPage() {
-		return this.page;
-	}
-
-	public void setPage(int page) {
-		this.page = page;
-	}
-
 	public int getPageSize() {
 		return 10;
 	}
 
+	public SearchPages getPages() {
+		return this.pages;
+	}
+
 	public PersonType getExample() {
 		return this.example;
 	}
@@ -228,36 +221,31 @@ public class PersonTypeBean implements Serializable {
 	 * @return null.
 	 */
 	public String search() {
-		this.page = 0;
+		this.pages.reset();
 		return null;
 	}
 
 	/**
 	 * When the user paginates through the page, it retrieves data for display a list of items on the page.
 	 */
+	@Monitored
 	public void paginate() {
 
-		CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
-
-		// Populate this.count
+		// Populate the count, counted once per search until person types are written
 
-		CriteriaQuery<Long> countCriteria = builder.createQuery(Long.class);
-		Root<PersonType> root = countCriteria.from(PersonType.class);
-		countCriteria = countCriteria.select(builder.count(root)).where(
-				getSearchPredicates(root));
-		this.count = this.entityManager.createQuery(countCriteria)
-				.getSingleResult();
+		this.pages.count(PersonType.class, getSearchKey(), () -> {
+			CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
+			CriteriaQuery<Long> countCriteria = builder.createQuery(Long.class);
+			Root<PersonType> root = countCriteria.from(PersonType.class);
+			return this.entityManager.createQuery(countCriteria.select(builder.count(root))
+					.where(getSearchPredicates(root))).getSingleResult();
+		});
 
-		// Populate this.pageItems
+		// Populate this.pageItems, seeking behind the last row of the previous page
 
-		CriteriaQuery<PersonType> criteria = builder
-				.createQuery(PersonType.class);
-		root = criteria.from(PersonType.class);
-		TypedQuery<PersonType> query = this.entityManager.createQuery(criteria
-				.select(root).where(getSearchPredicates(root)));
-		query.setFirstResult(this.page * getPageSize()).setMaxResults(
+		this.pageItems = this.pages.paginate(this.entityManager, "description", PersonType.class,
+				this::getSearchPredicates, row -> new KeysetPaginator.Cursor(row.getDescription(), row.getId()),
 				getPageSize());
-		this.pageItems = query.getResultList();
 	}
 
 	/**
@@ -279,12 +267,17 @@ public class PersonTypeBean implements Serializable {
 		return predicatesList.toArray(new Predicate[predicatesList.size()]);
 	}
 
-	public List<PersonType> getPageItems() {
-		return this.pageItems;
+	/**
+	 * Returns the search predicates normalized as key of the {@link CountCache}.
+	 * @return search key, empty for an unfiltered search.
+	 */
+	private String getSearchKey() {
+
+		return CountCache.searchKey("description", this.example.getDescription());
 	}
 
-	public long getCount() {
-		return this.count;
+	public List<PersonType> getPageItems() {
+		return this.pageItems;
 	}
 
 	/*
@@ -300,43 +293,23 @@ public class PersonTypeBean implements Serializable {
 
 		CriteriaQuery<PersonType> criteria = this.entityManager
 				.getCriteriaBuilder().createQuery(PersonType.class);
-		return this.entityManager.createQuery(
-				criteria.select(criteria.from(PersonType.class)))
+		return CacheRegions.cacheable(this.entityManager.createQuery(
+				criteria.select(criteria.from(PersonType.class))))
 				.getResultList();
 	}
 
-	@Resource
-	private SessionContext sessionContext;
+	/**
+	 * Application wide converter with a cache of PersonType entities.
+	 */
+	@Inject
+	private PersonTypeConverter converter;
 
 	/**
 	 * Converts an object to a String for displaying it as dataset.
-	 * @return object as string.
+	 * @return the shared converter of PersonType entities.
 	 */
 	public Converter getConverter() {
-
-		final PersonTypeBean ejbProxy = this.sessionContext
-				.getBusinessObject(PersonTypeBean.class);
-
-		return new Converter() {
-
-			@Override
-			public Object getAsObject(FacesContext context,
-					UIComponent component, String value) {
-
-				return ejbProxy.findById(Integer.valueOf(value));
-			}
-
-			@Override
-			public String getAsString(FacesContext context,
-					UIComponent component, Object value) {
-
-				if (value == null) {
-					return "";
-				}
-
-				return String.valueOf(((PersonType) value).getId());
-			}
-		};
+		return this.converter;
 	}
 
 	/*
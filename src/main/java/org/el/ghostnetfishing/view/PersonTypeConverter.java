@@ -0,0 +1,59 @@
+package org.el.ghostnetfishing.view;
+
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.el.ghostnetfishing.model.PersonType;
+
+/**
+ * PersonTypeConverter converts PersonType entities for select components of all views.
+ * All person types are loaded on the first miss, they are reference data.
+ */
+
+@Named
+@ApplicationScoped
+public class PersonTypeConverter extends EntityConverter<PersonType> {
+
+	/**
+	 * Loading entity manager with unit name ghostNetFishing-persistence-unit.
+	 */
+	@PersistenceContext(unitName = "ghostNetFishing-persistence-unit")
+	private EntityManager entityManager;
+
+	/**
+	 * Drops the cached entities, after PersonType entities are written successfully.
+	 * @param event about the written entities.
+	 */
+	public void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) EntityChangedEvent event) {
+		if (event.concerns(PersonType.class)) {
+			invalidate();
+		}
+	}
+
+	@Override
+	protected Class<PersonType> getType() {
+		return PersonType.class;
+	}
+
+	@Override
+	protected Integer getId(PersonType entity) {
+		return entity.getId();
+	}
+
+	@Override
+	protected PersonType load(Integer id) {
+		return this.entityManager.find(PersonType.class, id);
+	}
+
+	@Override
+	protected List<PersonType> loadAll() {
+		return CacheRegions.cacheable(this.entityManager.createQuery(
+				"select p from PersonType p", PersonType.class)).getResultList();
+	}
+}
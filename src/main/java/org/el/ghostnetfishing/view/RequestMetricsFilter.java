@@ -0,0 +1,117 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records latency and number of SQL statements of every page and API request.
+ * <p/>
+ * Requests are labeled by the requested view or API path, with the
+ * <tt>/faces</tt> prefix removed, so that both mappings of a page share one
+ * series. Paths answered with 404 and views not existing in the
+ * application are labeled {@link #OTHER_PATH}, so arbitrary URLs can't
+ * create series without limit. Requests for JSF resources don't use the
+ * database and are left out.
+ */
+
+@WebFilter(urlPatterns = { "*.xhtml", "/faces/*", "/api/*" })
+public class RequestMetricsFilter implements Filter {
+
+	private static final String RESOURCE_PATH = "/javax.faces.resource";
+
+	private static final String FACES_PREFIX = "/faces";
+
+	private static final String VIEW_SUFFIX = ".xhtml";
+
+	/**
+	 * Label of all requests for unknown paths.
+	 */
+	static final String OTHER_PATH = "other";
+
+	@Inject
+	private MetricsRegistry registry;
+
+	private ServletContext context;
+
+	/**
+	 * Views found in the application, their number is bounded by its files.
+	 */
+	private final Set<String> views = ConcurrentHashMap.newKeySet();
+
+	@Override
+	public void init(FilterConfig filterConfig) {
+		this.context = filterConfig.getServletContext();
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+
+		HttpServletRequest httpRequest = (HttpServletRequest) request;
+		String path = httpRequest.getServletPath()
+				+ (httpRequest.getPathInfo() == null ? "" : httpRequest.getPathInfo());
+		if (path.contains(RESOURCE_PATH)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		SqlStatementCounter.reset();
+		long start = System.nanoTime();
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			this.registry.recordRequest(label(path, ((HttpServletResponse) response).getStatus()),
+					System.nanoTime() - start, SqlStatementCounter.reset());
+		}
+	}
+
+	@Override
+	public void destroy() {
+		// Nothing to release
+	}
+
+	/**
+	 * Returns the label of a request path.
+	 * @param path servlet path and path info of the request.
+	 * @param status of the response.
+	 * @return path of the view or servlet, or {@link #OTHER_PATH}.
+	 */
+	private String label(String path, int status) {
+
+		if (status == HttpServletResponse.SC_NOT_FOUND) {
+			return OTHER_PATH;
+		}
+		String view = path.startsWith(FACES_PREFIX + "/") ? path.substring(FACES_PREFIX.length()) : path;
+		if (!view.endsWith(VIEW_SUFFIX)) {
+
+			// API servlets are mapped to exact paths, others are answered with 404
+			return view;
+		}
+		if (this.views.contains(view)) {
+			return view;
+		}
+		try {
+			if (this.context.getResource(view) == null) {
+				return OTHER_PATH;
+			}
+		} catch (MalformedURLException e) {
+			return OTHER_PATH;
+		}
+		this.views.add(view);
+		return view;
+	}
+}
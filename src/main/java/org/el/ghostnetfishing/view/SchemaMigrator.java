@@ -0,0 +1,318 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.Index;
+import org.hibernate.mapping.Table;
+import org.hibernate.metamodel.source.MetadataImplementor;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * SchemaMigrator brings the database schema to the version of the WAR, before Hibernate validates it.
+ * <p/>
+ * The migrations are SQL scripts in db/migration, applied once each in the
+ * order of {@link #MIGRATIONS}. Applied versions are recorded in the table
+ * schema_version. Afterwards every index declared by an entity mapping must
+ * exist with its columns in the declared order, so the search queries
+ * never depend on indexes added by hand. The mode is set by the property
+ * ghostnetfishing.schema.migration in persistence.xml:
+ * <ul>
+ * <li>migrate applies pending migrations and checks the indexes,</li>
+ * <li>validate only checks, pending migrations or missing indexes fail the deployment,</li>
+ * <li>none, the default, does nothing.</li>
+ * </ul>
+ * Registered in META-INF/services/org.hibernate.integrator.spi.Integrator.
+ */
+public class SchemaMigrator implements Integrator {
+
+	private static final Logger LOGGER = Logger.getLogger(SchemaMigrator.class.getName());
+
+	/**
+	 * Name of the property with the mode.
+	 */
+	public static final String MODE_PROPERTY = "ghostnetfishing.schema.migration";
+
+	/**
+	 * Migration scripts in the order of their versions, the version is the position plus one.
+	 * Applied scripts must never be changed, every change of the schema is a new script.
+	 */
+	private static final String[] MIGRATIONS = {
+			"V1__fishnet_grid_cell.sql",
+			"V2__fishnet_report.sql",
+			"V3__fishnet_version.sql",
+			"V4__search_indexes.sql",
+			"V5__fishnet_report_failed.sql" };
+
+	private static final String MIGRATION_PATH = "db/migration/";
+
+	private static final String VERSION_TABLE = "ghost_net_fishing.schema_version";
+
+	/**
+	 * Name of the MySQL lock serializing the migrations of concurrently starting servers.
+	 */
+	private static final String LOCK_NAME = "ghost_net_fishing.schema_migration";
+
+	private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+	/**
+	 * MySQL errors of statements, which were already applied by hand:
+	 * table exists, duplicate column, duplicate key name.
+	 */
+	private static final Set<Integer> ALREADY_APPLIED_ERRORS = new HashSet<Integer>();
+
+	static {
+		ALREADY_APPLIED_ERRORS.add(1050);
+		ALREADY_APPLIED_ERRORS.add(1060);
+		ALREADY_APPLIED_ERRORS.add(1061);
+	}
+
+	@Override
+	public void integrate(Configuration configuration, SessionFactoryImplementor sessionFactory,
+			SessionFactoryServiceRegistry serviceRegistry) {
+
+		String mode = configuration.getProperties().getProperty(MODE_PROPERTY, "none");
+		if ("none".equals(mode)) {
+			return;
+		}
+		if (!"migrate".equals(mode) && !"validate".equals(mode)) {
+			throw new HibernateException("Unknown " + MODE_PROPERTY + ": " + mode);
+		}
+
+		ConnectionProvider connectionProvider = serviceRegistry.getService(ConnectionProvider.class);
+		Connection connection = null;
+		try {
+			connection = connectionProvider.getConnection();
+			if ("migrate".equals(mode)) {
+				migrate(connection);
+			} else {
+				int version = readVersion(connection);
+				if (version < MIGRATIONS.length) {
+					throw new HibernateException("Schema version is " + version + ", expected " + MIGRATIONS.length
+							+ ", pending migrations start with " + MIGRATIONS[version]);
+				}
+			}
+			validateIndexes(connection, configuration);
+		} catch (SQLException | IOException e) {
+			throw new HibernateException("Schema migration failed", e);
+		} finally {
+			if (connection != null) {
+				try {
+					connectionProvider.closeConnection(connection);
+				} catch (SQLException e) {
+					LOGGER.warning("Closing the migration connection failed: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	@Override
+	public void integrate(MetadataImplementor metadata, SessionFactoryImplementor sessionFactory,
+			SessionFactoryServiceRegistry serviceRegistry) {
+		// Only the Configuration is used by this Hibernate version
+	}
+
+	@Override
+	public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+		// Nothing to release
+	}
+
+	/**
+	 * Applies the pending migrations while holding the migration lock.
+	 */
+	private static void migrate(Connection connection) throws SQLException, IOException {
+
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("create table if not exists " + VERSION_TABLE
+					+ " (version int not null primary key, description varchar(200) not null,"
+					+ " installed_on datetime not null, execution_millis bigint not null) engine=InnoDB");
+			try (ResultSet lock = statement.executeQuery(
+					"select get_lock('" + LOCK_NAME + "', " + LOCK_TIMEOUT_SECONDS + ")")) {
+				if (!lock.next() || lock.getInt(1) != 1) {
+					throw new HibernateException("Schema migration lock not acquired within "
+							+ LOCK_TIMEOUT_SECONDS + " seconds");
+				}
+			}
+			try {
+				for (int version = readVersion(connection); version < MIGRATIONS.length; version++) {
+					apply(connection, version + 1, MIGRATIONS[version]);
+				}
+			} finally {
+				statement.executeQuery("select release_lock('" + LOCK_NAME + "')").close();
+			}
+		}
+	}
+
+	/**
+	 * Runs the statements of one script and records its version.
+	 */
+	private static void apply(Connection connection, int version, String script) throws SQLException, IOException {
+
+		long start = System.currentTimeMillis();
+		try (Statement statement = connection.createStatement()) {
+			for (String sql : readStatements(script)) {
+				try {
+					statement.execute(sql);
+				} catch (SQLException e) {
+					if (!ALREADY_APPLIED_ERRORS.contains(e.getErrorCode())) {
+						throw e;
+					}
+					LOGGER.info(script + ": skipped, already applied: " + e.getMessage());
+				}
+			}
+		}
+		try (PreparedStatement insert = connection.prepareStatement("insert into " + VERSION_TABLE
+				+ " (version, description, installed_on, execution_millis) values (?, ?, ?, ?)")) {
+			insert.setInt(1, version);
+			insert.setString(2, script);
+			insert.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+			insert.setLong(4, System.currentTimeMillis() - start);
+			insert.executeUpdate();
+		}
+		if (!connection.getAutoCommit()) {
+			connection.commit();
+		}
+		LOGGER.info("Applied schema migration " + script);
+	}
+
+	/**
+	 * Reads the highest applied version.
+	 * @return version, 0 if there is no version table yet.
+	 */
+	private static int readVersion(Connection connection) throws SQLException {
+
+		try (ResultSet tables = connection.getMetaData().getTables("ghost_net_fishing", null, "schema_version", null)) {
+			if (!tables.next()) {
+				return 0;
+			}
+		}
+		try (Statement statement = connection.createStatement();
+				ResultSet result = statement.executeQuery("select max(version) from " + VERSION_TABLE)) {
+			return result.next() ? result.getInt(1) : 0;
+		}
+	}
+
+	/**
+	 * Reads the statements of a script, which are separated by a semicolon at the end of a line.
+	 * Lines starting with -- are comments.
+	 */
+	private static List<String> readStatements(String script) throws IOException {
+
+		InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(MIGRATION_PATH + script);
+		if (in == null) {
+			throw new IOException("Missing migration " + MIGRATION_PATH + script);
+		}
+		List<String> statements = new ArrayList<String>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			StringBuilder sql = new StringBuilder();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String trimmed = line.trim();
+				if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+					continue;
+				}
+				if (sql.length() > 0) {
+					sql.append('\n');
+				}
+				if (trimmed.endsWith(";")) {
+					sql.append(trimmed, 0, trimmed.length() - 1);
+					statements.add(sql.toString());
+					sql.setLength(0);
+				} else {
+					sql.append(trimmed);
+				}
+			}
+			if (sql.length() > 0) {
+				statements.add(sql.toString());
+			}
+		}
+		return statements;
+	}
+
+	/**
+	 * Checks, that every index of the mappings exists with the same columns in the same order.
+	 * @throws HibernateException listing the missing indexes.
+	 */
+	private static void validateIndexes(Connection connection, Configuration configuration) throws SQLException {
+
+		DatabaseMetaData metaData = connection.getMetaData();
+		List<String> missing = new ArrayList<String>();
+		Iterator<Table> tables = configuration.getTableMappings();
+		while (tables.hasNext()) {
+			Table table = tables.next();
+			Iterator<Index> indexes = table.getIndexIterator();
+			if (!indexes.hasNext()) {
+				continue;
+			}
+			Map<String, List<String>> existing = readIndexes(metaData, table);
+			while (indexes.hasNext()) {
+				Index index = indexes.next();
+				List<String> columns = new ArrayList<String>();
+				Iterator<Column> iterator = index.getColumnIterator();
+				while (iterator.hasNext()) {
+					columns.add(iterator.next().getName().toLowerCase());
+				}
+				if (!columns.equals(existing.get(index.getName().toLowerCase()))) {
+					missing.add(table.getName() + "." + index.getName() + columns);
+				}
+			}
+		}
+		if (!missing.isEmpty()) {
+			throw new HibernateException("Missing indexes: " + missing);
+		}
+	}
+
+	/**
+	 * Reads the columns of the existing indexes of a table.
+	 * @return columns in index order, keyed by lower case index name.
+	 */
+	private static Map<String, List<String>> readIndexes(DatabaseMetaData metaData, Table table) throws SQLException {
+
+		Map<String, List<String>> indexes = new HashMap<String, List<String>>();
+		try (ResultSet result = metaData.getIndexInfo(table.getCatalog(), table.getSchema(), table.getName(), false,
+				true)) {
+			while (result.next()) {
+				String name = result.getString("INDEX_NAME");
+				String column = result.getString("COLUMN_NAME");
+				if (name == null || column == null) {
+					continue;
+				}
+				List<String> columns = indexes.get(name.toLowerCase());
+				if (columns == null) {
+					columns = new ArrayList<String>();
+					indexes.put(name.toLowerCase(), columns);
+				}
+				int position = result.getShort("ORDINAL_POSITION") - 1;
+				while (columns.size() <= position) {
+					columns.add(null);
+				}
+				columns.set(position, column.toLowerCase());
+			}
+		}
+		return indexes;
+	}
+}
@@ -0,0 +1,217 @@
+package org.el.ghostnetfishing.view;
+
+import java.io.Serializable;
+import java.util.List;
+
+import javax.enterprise.context.Dependent;
+import javax.enterprise.inject.spi.InjectionPoint;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+/**
+ * SearchPages holds the search state shared by the backing beans.
+ * <p/>
+ * Every bean injects its own instance, which keeps the page and the cursors
+ * of the {@link KeysetPaginator}, the count of the current search from the
+ * {@link CountCache} and checks the EXTENDED persistence context of the bean
+ * with the {@link PersistenceContextGuard} under the name of the bean.
+ */
+
+@Dependent
+public class SearchPages implements Serializable {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Application wide guard of the persistence contexts.
+	 */
+	@Inject
+	private PersistenceContextGuard guard;
+
+	/**
+	 * Application wide cache of the search counts.
+	 */
+	@Inject
+	private CountCache countCache;
+
+	/**
+	 * Class of the bean owning this state.
+	 */
+	private Class<?> owner;
+
+	/**
+	 * Keyset pagination, created with the sort attribute of the first read page.
+	 */
+	private KeysetPaginator paginator;
+
+	/**
+	 * Page position.
+	 */
+	private int page;
+
+	/**
+	 * Opaque cursor token of the current page, passed by the paginator links.
+	 */
+	private String cursor;
+
+	/**
+	 * When setted, there are more rows after the current page.
+	 */
+	private boolean nextPage;
+
+	/**
+	 * Page counter.
+	 */
+	private long count;
+
+	/**
+	 * When setted, the count is an estimate of the table statistics.
+	 */
+	private boolean countEstimated;
+
+	/**
+	 * Takes the owning bean from the injection point.
+	 * @param injectionPoint of this state in the bean.
+	 */
+	@Inject
+	void setInjectionPoint(InjectionPoint injectionPoint) {
+		this.owner = injectionPoint.getMember().getDeclaringClass();
+	}
+
+	public int getPage() {
+		return this.page;
+	}
+
+	public void setPage(int page) {
+		this.page = page;
+	}
+
+	public String getCursor() {
+		return this.cursor;
+	}
+
+	public void setCursor(String cursor) {
+		this.cursor = cursor;
+	}
+
+	public String getNextCursor() {
+		return this.paginator == null ? null : this.paginator.getCursorToken(this.page + 1);
+	}
+
+	public String getPreviousCursor() {
+		return this.paginator == null ? null : this.paginator.getCursorToken(this.page - 1);
+	}
+
+	public boolean isNextPage() {
+		return this.nextPage;
+	}
+
+	/**
+	 * Starts a new search on the page 0.
+	 */
+	public void reset() {
+		this.page = 0;
+		this.cursor = null;
+		forgetCursors();
+	}
+
+	/**
+	 * Drops the known cursors, e.g. when the search predicates changed.
+	 */
+	public void forgetCursors() {
+		if (this.paginator != null) {
+			this.paginator.reset();
+		}
+	}
+
+	/**
+	 * Reads the current page of entities.
+	 * @see #paginate(EntityManager, String, Class, Class, KeysetPaginator.Selector, KeysetPaginator.Restriction, KeysetPaginator.KeyReader, int)
+	 */
+	public <T> List<T> paginate(EntityManager manager, String sortAttribute, Class<T> type,
+			KeysetPaginator.Restriction<T> restriction, KeysetPaginator.KeyReader<T> keyReader, int pageSize) {
+		return paginate(manager, sortAttribute, type, type, root -> root, restriction, keyReader, pageSize);
+	}
+
+	/**
+	 * Reads the current page, seeking behind the last row of the previous page.
+	 * @param manager is the EXTENDED entity manager of the bean.
+	 * @param sortAttribute sorted by before the id, null sorts by id only.
+	 * @param type of the root entity.
+	 * @param resultType of the rows.
+	 * @param selector builds the selection of a row.
+	 * @param restriction builds the search predicates.
+	 * @param keyReader reads the key of a row.
+	 * @param pageSize maximum number of rows.
+	 * @return list of rows of the page.
+	 */
+	public <T, R> List<R> paginate(EntityManager manager, String sortAttribute, Class<T> type, Class<R> resultType,
+			KeysetPaginator.Selector<T, R> selector, KeysetPaginator.Restriction<T> restriction,
+			KeysetPaginator.KeyReader<R> keyReader, int pageSize) {
+
+		if (this.paginator == null) {
+			this.paginator = new KeysetPaginator(sortAttribute);
+		}
+		this.paginator.setCursorToken(this.page, this.cursor);
+		List<R> rows = this.paginator.paginate(manager, type, resultType, selector, restriction, keyReader,
+				this.page, pageSize);
+		this.nextPage = this.paginator.isNextPage();
+
+		// a deep page without cursor token starts over at the first page
+		if (this.paginator.getPage() != this.page) {
+			this.page = this.paginator.getPage();
+			this.cursor = null;
+		}
+		afterPaginate(manager);
+		return rows;
+	}
+
+	/**
+	 * Takes the current page from the matches of a search index instead of paginating.
+	 * @param count exact number of matches.
+	 * @param nextPage true, if there are more matches after the current page.
+	 */
+	public void matched(long count, boolean nextPage) {
+		this.count = count;
+		this.countEstimated = false;
+		this.nextPage = nextPage;
+	}
+
+	public long getCount() {
+		return this.count;
+	}
+
+	public boolean isCountEstimated() {
+		return this.countEstimated;
+	}
+
+	/**
+	 * Takes the count of a search, counted once per search until entities of the type are written.
+	 * @param type of the counted entities.
+	 * @param searchKey normalized search predicates, see {@link CountCache#searchKey(Object...)}.
+	 * @param query runs the COUNT query.
+	 */
+	public void count(Class<?> type, String searchKey, CountCache.CountQuery query) {
+		this.countEstimated = this.countCache.isEstimating(searchKey);
+		this.count = this.countCache.getCount(type, searchKey, query);
+	}
+
+	/**
+	 * Checks the context before the bean loads the entity of a conversation.
+	 * @param manager is the EXTENDED entity manager of the bean.
+	 */
+	public void enforceLimit(EntityManager manager) {
+		this.guard.enforceLimit(manager, this.owner);
+	}
+
+	/**
+	 * Checks the context after the bean read a page.
+	 * @param manager is the EXTENDED entity manager of the bean.
+	 */
+	public void afterPaginate(EntityManager manager) {
+		this.guard.afterPaginate(manager, this.owner);
+	}
+}
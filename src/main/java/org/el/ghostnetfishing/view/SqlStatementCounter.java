@@ -0,0 +1,56 @@
+package org.el.ghostnetfishing.view;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.EmptyInterceptor;
+
+/**
+ * SqlStatementCounter counts the SQL statements Hibernate prepares, in total and per thread.
+ * <p/>
+ * The {@link RequestMetricsFilter} resets the count of its thread at the
+ * start of a request and records it at the end. Statements of raw JDBC
+ * work, like the batch inserts, are not prepared by Hibernate and not
+ * counted. Registered by hibernate.ejb.interceptor in persistence.xml.
+ */
+public class SqlStatementCounter extends EmptyInterceptor {
+
+	/**
+	 * Uniquely identify the version of a serializable.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private static final AtomicLong TOTAL = new AtomicLong();
+
+	private static final ThreadLocal<int[]> CURRENT = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[1];
+		}
+	};
+
+	@Override
+	public String onPrepareStatement(String sql) {
+		TOTAL.incrementAndGet();
+		CURRENT.get()[0]++;
+		return sql;
+	}
+
+	/**
+	 * Returns the number of statements of the current thread and starts counting from 0.
+	 * @return number of statements since the last reset.
+	 */
+	public static int reset() {
+
+		int[] current = CURRENT.get();
+		int count = current[0];
+		current[0] = 0;
+		return count;
+	}
+
+	/**
+	 * @return number of statements since the start of the application.
+	 */
+	public static long getTotal() {
+		return TOTAL.get();
+	}
+}
@@ -0,0 +1,5 @@
+-- Spatial grid cell of the fishnets, see GeoGrid
+ALTER TABLE ghost_net_fishing.fishnet ADD grid_cell INT NOT NULL DEFAULT 0;
+UPDATE ghost_net_fishing.fishnet SET grid_cell = FLOOR((latitude + 90) / 0.5) * 720
+    + FLOOR((longitude + 180) / 0.5);
+CREATE INDEX idx_fishnet_grid_cell ON ghost_net_fishing.fishnet (grid_cell);
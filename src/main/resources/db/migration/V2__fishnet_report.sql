@@ -0,0 +1,9 @@
+-- Ingestion queue of new fishnet reports, see FishnetReportQueue
+CREATE TABLE ghost_net_fishing.fishnet_report (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    salvaging_person_id INT NULL,
+    size DOUBLE NOT NULL,
+    latitude DOUBLE NOT NULL,
+    longitude DOUBLE NOT NULL,
+    received DATETIME NOT NULL
+) ENGINE=InnoDB;
@@ -0,0 +1,2 @@
+-- Optimistic locking of fishnets
+ALTER TABLE ghost_net_fishing.fishnet ADD version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,7 @@
+-- Access paths of the search beans and the overview:
+-- filter by state, reporting or recovering person, keyset paging by id
+CREATE INDEX idx_fishnet_state_id ON ghost_net_fishing.fishnet (fishnet_state_id, id);
+CREATE INDEX idx_fishnet_salvaging_person_id ON ghost_net_fishing.fishnet (salvaging_person_id, id);
+CREATE INDEX idx_fishnet_recovery_person_id ON ghost_net_fishing.fishnet (recovery_messaging_person_id, id);
+-- keyset paging of persons by name
+CREATE INDEX idx_person_name_id ON ghost_net_fishing.person (name, id);
@@ -0,0 +1,2 @@
+-- Dead letters of the ingestion queue: reports failing to be stored, see FishnetReportQueue
+ALTER TABLE ghost_net_fishing.fishnet_report ADD failed DATETIME NULL;